@@ -1,8 +1,14 @@
 package com.greyorange.mvts.designer;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.greyorange.multifleetplanner.helpers.Helper;
+import com.greyorange.mvts.designer.joblog.JobLog;
+import com.greyorange.mvts.designer.joblog.JobLogStore;
 import com.greyorange.mvts.designer.properties.ApplicationProperties;
+import com.greyorange.mvts.designer.session.ProblemStatementSessionStore;
+import com.greyorange.mvts.designer.session.StudioSession;
+import com.greyorange.mvts.designer.spatial.GridSpatialIndex;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -18,6 +24,9 @@ import java.util.concurrent.CopyOnWriteArraySet;
 
 public class PSStudioRestApiHandler extends AbstractHandler {
 
+  private static final int DEFAULT_LOG_PAGE = 200;
+  private static final int MAX_LOG_PAGE = 1000;
+
   private String cacheDefaultConfig = null;
   private Map<String, String> queryParams;
 
@@ -64,6 +73,14 @@ public class PSStudioRestApiHandler extends AbstractHandler {
           responseBody = Helper.getObjectMapper().writeValueAsString(ProblemStatementStudio.getInstance().getInputMessage());
         } else if (target.startsWith("/config/default")) {
           responseBody = getDefaultConfigFromMVTS();
+        } else if (target.startsWith("/tiles")) {
+          writeTiles(queryParams, response);
+          baseRequest.setHandled(true);
+          return;
+        } else if (target.startsWith("/jobs/") && target.endsWith("/logs")) {
+          writeJobLogs(target.substring("/jobs/".length(), target.length() - "/logs".length()), queryParams, response);
+          baseRequest.setHandled(true);
+          return;
         }
 
         response.setContentType("application/json");
@@ -79,6 +96,127 @@ public class PSStudioRestApiHandler extends AbstractHandler {
     }
   }
 
+  /**
+   * Writes the entities of a session's statement and last solution that lie inside the viewport
+   * [x0, x1] x [y0, y1], so large layouts can be loaded one view at a time. At most TILES_MAX_ENTITIES
+   * entities are returned; "truncated" tells the client to zoom in.
+   * The optional "kinds" parameter limits the lists returned, e.g. kinds=bots,msus.
+   */
+  private void writeTiles(Map<String, String> queryParams, HttpServletResponse response) throws IOException {
+    response.setContentType("application/json");
+
+    String sessionId = queryParams.get("session");
+    StudioSession studioSession = sessionId == null ? null : ProblemStatementSessionStore.getInstance().get(sessionId);
+    if (studioSession == null || !studioSession.hasProblemStatement()) {
+      writeError(response, HttpServletResponse.SC_NOT_FOUND, "No problem statement stored for this session");
+      return;
+    }
+
+    int x0, y0, x1, y1;
+    try {
+      x0 = Integer.parseInt(queryParams.get("x0"));
+      y0 = Integer.parseInt(queryParams.get("y0"));
+      x1 = Integer.parseInt(queryParams.get("x1"));
+      y1 = Integer.parseInt(queryParams.get("y1"));
+    } catch (NumberFormatException e) {
+      writeError(response, HttpServletResponse.SC_BAD_REQUEST, "x0, y0, x1 and y1 must be integers");
+      return;
+    }
+
+    Set<GridSpatialIndex.Kind> kinds = EnumSet.allOf(GridSpatialIndex.Kind.class);
+    if (queryParams.containsKey("kinds")) {
+      List<String> requested = Arrays.asList(queryParams.get("kinds").split(","));
+      kinds.removeIf(kind -> !requested.contains(kind.getField()));
+    }
+
+    int limit = ApplicationProperties.TILES_MAX_ENTITIES.getIntValue();
+    Map<GridSpatialIndex.Kind, List<JsonNode>> found = new EnumMap<>(GridSpatialIndex.Kind.class);
+    int[] count = {0};
+    boolean[] truncated = {false};
+    GridSpatialIndex index = studioSession.getSpatialIndex();
+    index.query(x0, y0, x1, y1, kinds, entry -> {
+      if (count[0] == limit) {
+        truncated[0] = true;
+        return false;
+      }
+      count[0]++;
+      found.computeIfAbsent(entry.getKind(), kind -> new ArrayList<>()).add(entry.getNode());
+      return true;
+    });
+
+    response.setStatus(HttpServletResponse.SC_OK);
+    try (JsonGenerator generator = Helper.getObjectMapper().getFactory().createGenerator(response.getWriter())) {
+      generator.writeStartObject();
+      generator.writeNumberField("version", studioSession.getVersion());
+      generator.writeNumberField("resultVersion", studioSession.getResultVersion());
+      generator.writeNumberField("count", count[0]);
+      generator.writeBooleanField("truncated", truncated[0]);
+      for (GridSpatialIndex.Kind kind : kinds) {
+        generator.writeArrayFieldStart(kind.getField());
+        for (JsonNode node : found.getOrDefault(kind, Collections.emptyList())) {
+          generator.writeTree(node);
+        }
+        generator.writeEndArray();
+      }
+      generator.writeEndObject();
+    }
+  }
+
+  /**
+   * Writes one page of a solve's captured log. "offset" and "limit" count events at or above
+   * "level" (default TRACE, i.e. all events), and "total" is the number of such events so far.
+   */
+  private void writeJobLogs(String jobId, Map<String, String> queryParams, HttpServletResponse response) throws IOException {
+    response.setContentType("application/json");
+
+    JobLog jobLog = JobLogStore.getInstance().get(jobId);
+    if (jobLog == null) {
+      writeError(response, HttpServletResponse.SC_NOT_FOUND, "No logs kept for job " + jobId);
+      return;
+    }
+
+    int offset;
+    int limit;
+    try {
+      offset = Math.max(0, Integer.parseInt(queryParams.getOrDefault("offset", "0")));
+      limit = Math.min(MAX_LOG_PAGE, Math.max(0, Integer.parseInt(queryParams.getOrDefault("limit", String.valueOf(DEFAULT_LOG_PAGE)))));
+    } catch (NumberFormatException e) {
+      writeError(response, HttpServletResponse.SC_BAD_REQUEST, "offset and limit must be integers");
+      return;
+    }
+    String level = queryParams.getOrDefault("level", "TRACE");
+    if (!JobLog.isLevel(level)) {
+      writeError(response, HttpServletResponse.SC_BAD_REQUEST, "Unknown level " + level);
+      return;
+    }
+
+    // Read the page first so an unreadable log does not leave a half-written response
+    boolean finished = jobLog.isFinished();
+    List<String> events = new ArrayList<>();
+    int total = jobLog.read(offset, limit, level, events::add);
+
+    response.setStatus(HttpServletResponse.SC_OK);
+    try (JsonGenerator generator = Helper.getObjectMapper().getFactory().createGenerator(response.getWriter())) {
+      generator.writeStartObject();
+      generator.writeStringField("jobId", jobId);
+      generator.writeBooleanField("finished", finished);
+      generator.writeNumberField("total", total);
+      generator.writeNumberField("offset", offset);
+      generator.writeNumberField("limit", limit);
+      generator.writeArrayFieldStart("events");
+      for (String event : events) {
+        generator.writeRawValue(event);
+      }
+      generator.writeEndArray();
+      generator.writeEndObject();
+    }
+  }
+
+  private void writeError(HttpServletResponse response, int status, String message) throws IOException {
+    response.setStatus(status);
+    response.getWriter().write(Helper.getObjectMapper().createObjectNode().put("error", message).toString());
+  }
+
   private String getDefaultConfigFromMVTS() {
 
     if (cacheDefaultConfig != null) {
@@ -1,28 +1,61 @@
 package com.greyorange.mvts.designer;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.RawValue;
 import com.greyorange.multifleetplanner.helpers.Helper;
 import com.greyorange.multifleetplanner.pojo.InputMessage;
+import com.greyorange.mvts.designer.anytime.AnytimeSolve;
+import com.greyorange.mvts.designer.cluster.SolveResult;
+import com.greyorange.mvts.designer.cluster.SolverCoordinator;
+import com.greyorange.mvts.designer.config.ConfigFlattener;
+import com.greyorange.mvts.designer.ingest.MessageTooLargeException;
+import com.greyorange.mvts.designer.ingest.StatementPayload;
+import com.greyorange.mvts.designer.ingest.StreamingMessageReader;
+import com.greyorange.mvts.designer.joblog.JobLog;
+import com.greyorange.mvts.designer.joblog.JobLogStore;
+import com.greyorange.mvts.designer.memory.SolveMemoryMeter;
+import com.greyorange.mvts.designer.memory.SolveMemoryModel;
+import com.greyorange.mvts.designer.memory.SolveMemoryUsage;
+import com.greyorange.mvts.designer.properties.ApplicationProperties;
+import com.greyorange.mvts.designer.pojo.SolveOptions;
+import com.greyorange.mvts.designer.pojo.ValidationError;
 import com.greyorange.mvts.designer.pojo.WSData;
 import com.greyorange.mvts.designer.pojo.WSEvent;
+import com.greyorange.mvts.designer.session.ProblemStatementSessionStore;
+import com.greyorange.mvts.designer.session.StudioSession;
+import com.greyorange.mvts.designer.solution.ColumnarResultCodec;
+import com.greyorange.mvts.designer.solution.SolutionDelta;
+import com.greyorange.mvts.designer.solution.SolutionSummary;
+import com.greyorange.mvts.designer.subscription.JobChannel;
+import com.greyorange.mvts.designer.subscription.JobChannelRegistry;
+import com.greyorange.mvts.designer.subscription.Subscriber;
+import com.greyorange.mvts.designer.validation.ProblemStatementValidator;
+import com.greyorange.mvts.designer.warmstart.ColdBaseline;
+import com.greyorange.mvts.designer.warmstart.WarmStart;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
 import org.eclipse.jetty.websocket.api.annotations.*;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @WebSocket
 public class PSStudioWebSocketHandler {
-  private static final CopyOnWriteArraySet<Session> sessions = new CopyOnWriteArraySet<>();
   private static final ExecutorService executor = Executors.newCachedThreadPool();
 
-  // Queue for managing sequential problem solving requests
+  // Queue for managing problem solving requests, one worker per solver node (a single worker when solving locally)
   private static final BlockingQueue<Runnable> problemSolvingQueue = new LinkedBlockingQueue<>();
-  private static final ExecutorService sequentialExecutor = Executors.newSingleThreadExecutor();
-  private static final AtomicBoolean isProcessingQueue = new AtomicBoolean(false);
+  private static final int solveWorkers = SolverCoordinator.getInstance().getCapacity();
+  private static final ExecutorService solveExecutor = Executors.newFixedThreadPool(solveWorkers);
+  private static final AtomicInteger activeSolves = new AtomicInteger();
+  private static final long MB = 1024 * 1024;
 
   static {
     // Start the queue processor
@@ -30,27 +63,31 @@ public class PSStudioWebSocketHandler {
   }
 
   /**
-   * Starts the queue processor that handles problem solving requests sequentially
+   * Starts the queue processors that take problem solving requests off the queue
    */
   private static void startQueueProcessor() {
-    sequentialExecutor.submit(() -> {
-      while (!Thread.currentThread().isInterrupted()) {
-        try {
-          // Take the next task from queue (blocks if queue is empty)
-          Runnable task = problemSolvingQueue.take();
-
-          // Execute the task
-          task.run();
-
-        } catch (InterruptedException e) {
-          Thread.currentThread().interrupt();
-          break;
-        } catch (Exception e) {
-          System.err.println("Error processing problem solving queue: " + e.getMessage());
-          e.printStackTrace();
-        }
+    for (int i = 0; i < solveWorkers; i++) {
+      solveExecutor.submit(PSStudioWebSocketHandler::processQueue);
+    }
+  }
+
+  private static void processQueue() {
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        // Take the next task from queue (blocks if queue is empty)
+        Runnable task = problemSolvingQueue.take();
+
+        // Execute the task
+        task.run();
+
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (Exception e) {
+        System.err.println("Error processing problem solving queue: " + e.getMessage());
+        e.printStackTrace();
       }
-    });
+    }
   }
 
   /**
@@ -65,44 +102,62 @@ public class PSStudioWebSocketHandler {
   @OnWebSocketConnect
   public void onConnect(Session session) {
     try {
-      // Remove message size restriction
-      session.setMaxTextMessageSize(Integer.MAX_VALUE);
-      sessions.add(session);
-      // Register session for log streaming
-      WebSocketLogAppender.addSession(session);
+      // Messages are streamed and limited while reading, so Jetty only needs to enforce the same upper bound
+      session.setMaxTextMessageSize(StreamingMessageReader.getMaxMessageChars());
       System.out.println("Client connected: " + session);
     } catch (Exception e) {
       e.printStackTrace();
     }
   }
 
+  /**
+   * Receives messages as a stream of frames, so large problem statements are parsed as they
+   * arrive instead of being assembled into one string first.
+   */
   @OnWebSocketMessage
-  public void onMessage(Session session, String message) throws IOException {
+  public void onMessage(Session session, Reader reader) throws IOException {
+    WSData data = null;
     try {
-      WSData data = Helper.getObjectMapper().readValue(message, WSData.class);
+      data = StreamingMessageReader.read(reader);
       if (data.getEvent().equals(WSEvent.PING)) {
         session.getRemote().sendString("{\"type\":\"PONG\"}");
-      }
-
-      if (data.getEvent().equals(WSEvent.SOLVE_PROBLEM_STATEMENT)) {
-        handleSolveProblemStatement(session, data.getDataNode());
-      }  else {
+      } else if (data.getEvent().equals(WSEvent.SOLVE_PROBLEM_STATEMENT)) {
+        handleSolveProblemStatement(session, data.getRequestId(), data.getProblemStatement(), data.getDataNode());
+      } else if (data.getEvent().equals(WSEvent.UPDATE_PROBLEM_STATEMENT)) {
+        handleUpdateProblemStatement(session, data.getRequestId(), data.getDataNode());
+      } else if (data.getEvent().equals(WSEvent.SOLVE_CURRENT)) {
+        handleSolveCurrent(session, data.getRequestId(), data.getDataNode());
+      } else if (data.getEvent().equals(WSEvent.SUBSCRIBE_JOB)) {
+        handleSubscribeJob(session, data.getRequestId(), data.getDataNode());
+      } else if (data.getEvent().equals(WSEvent.UNSUBSCRIBE_JOB)) {
+        handleUnsubscribeJob(session, data.getDataNode());
+      } else if (data.getEvent().equals(WSEvent.CANCEL_JOB)) {
+        handleCancelJob(session, data.getRequestId(), data.getDataNode());
+      } else {
         System.err.println("Unknown event type: " + data.getEvent());
       }
 
+    } catch (MessageTooLargeException e) {
+      System.err.println("Rejecting message: " + e.getMessage());
+      ObjectNode reply = Helper.getObjectMapper().createObjectNode();
+      reply.put("type", "ERROR");
+      reply.put("message", e.getMessage());
+      session.getRemote().sendString(reply.toString());
+      session.close(StatusCode.MESSAGE_TOO_LARGE, "Message too large");
     } catch (Exception e) {
-      System.err.println("Error parsing message: " + message);
+      System.err.println("Error parsing message: " + e.getMessage());
       e.printStackTrace();
       session.getRemote().sendString("{\"type\":\"ERROR\", \"message\":\"Invalid message format\"}");
-      return;
+    } finally {
+      if (data != null && data.getProblemStatement() != null) {
+        data.getProblemStatement().release();
+      }
     }
   }
 
   @OnWebSocketClose
   public void onClose(Session session, int statusCode, String reason) {
-    sessions.remove(session);
-    // Unregister session from log streaming
-    WebSocketLogAppender.removeSession(session);
+    JobChannelRegistry.getInstance().remove(session);
     System.out.println("Client disconnected: " + reason);
   }
 
@@ -116,82 +171,702 @@ public class PSStudioWebSocketHandler {
 
   /**
    * Handles the SOLVE_PROBLEM_STATEMENT event.
-   * Adds the request to a queue for sequential processing to prevent concurrent executions.
-   * Provides queue position feedback to the client.
+   * Validates the uploaded statement and checks its predicted memory, then stores it in the client's
+   * session so later edits can be sent as patches, and queues it for solving. A client without a
+   * session, or whose session expired, is issued a new one.
    *
    * @param session The WebSocket session of the client.
-   * @param dataNode The JSON data node containing the problem statement details.
+   * @param requestId The client's request id, echoed if validation or admission fails.
+   * @param problemStatement The problem statement as received, owned by the caller.
+   * @param dataNode The JSON data node with the remaining request details.
    */
-  private void handleSolveProblemStatement(Session session, JsonNode dataNode) {
-    String inputMessage = dataNode.get("problemStatement").toString();
+  private void handleSolveProblemStatement(Session session, String requestId, StatementPayload problemStatement,
+                                           JsonNode dataNode) throws IOException {
+    if (problemStatement == null) {
+      sendError(session, requestId, "Message has no problemStatement object");
+      return;
+    }
+    Map<String, String> configs = readConfigs(dataNode);
 
-    JsonNode configNode = dataNode.get("config");
-    Map<String, String> configs = new HashMap<>();
+    JsonParser parser = Helper.getObjectMapper().getFactory().createParser(problemStatement.openReader());
+    if (!validateProblemStatement(session, requestId, parser, dataNode) || !admitSolve(session, requestId, problemStatement)) {
+      return;
+    }
 
-    // Flatten configNode if present
-    if (configNode != null && !configNode.isNull()) {
-      flattenJson(configNode, "", configs);
+    // Only a statement that was accepted becomes the base for later patches and SOLVE_CURRENT
+    ProblemStatementSessionStore store = ProblemStatementSessionStore.getInstance();
+    StudioSession studioSession = store.get(readSessionId(dataNode));
+    if (studioSession == null) {
+      studioSession = store.create();
+      sendSessionIssued(session, requestId, studioSession.getId());
     }
+    studioSession.replaceProblemStatement(problemStatement.retain(), readVersion(dataNode, "version"));
+    studioSession.setConfigs(configs);
 
-    // Get current queue position
-    int queuePosition = problemSolvingQueue.size() + (isProcessingQueue.get() ? 1 : 0);
+    enqueueSolve(session, studioSession, problemStatement, configs, readSolveOptions(dataNode));
+  }
+
+  /**
+   * Handles the UPDATE_PROBLEM_STATEMENT event.
+   * Applies a JSON Patch to the statement stored for the client's session and acknowledges the new version.
+   *
+   * @param session The WebSocket session of the client.
+   * @param requestId The client's request id, echoed in the reply.
+   * @param dataNode The JSON data node containing the patch and its base version.
+   */
+  private void handleUpdateProblemStatement(Session session, String requestId, JsonNode dataNode) throws IOException {
+    StudioSession studioSession = ProblemStatementSessionStore.getInstance().get(readSessionId(dataNode));
+    if (studioSession == null) {
+      sendError(session, requestId, "No problem statement stored for this session");
+      return;
+    }
 
-    // Notify client about queue position
+    long version;
     try {
-      if (!isProcessingQueue.get() && queuePosition == 1) {
-        session.getRemote().sendString("{\"type\":\"SOLVING_PROBLEM_STATEMENT\", \"data\":{\"log\":\"Starting problem solving immediately...\", \"timestamp\":" + System.currentTimeMillis() + "}}");
-      } else {
-        session.getRemote().sendString("{\"type\":\"SOLVING_PROBLEM_STATEMENT\", \"data\":{\"log\":\"Request queued at position " + queuePosition + ". Waiting for previous requests to complete...\", \"timestamp\":" + System.currentTimeMillis() + "}}");
+      version = studioSession.applyPatch(dataNode.get("patch"), readVersion(dataNode, "baseVersion"), readVersion(dataNode, "version"));
+    } catch (RuntimeException e) {
+      sendError(session, requestId, "Failed to update problem statement: " + e.getMessage());
+      return;
+    }
+
+    ObjectNode reply = Helper.getObjectMapper().createObjectNode();
+    reply.put("type", WSEvent.PROBLEM_STATEMENT_UPDATED.name());
+    reply.put("requestId", requestId);
+    reply.putObject("data").put("version", version);
+    session.getRemote().sendString(reply.toString());
+  }
+
+  /**
+   * Handles the SOLVE_CURRENT event.
+   * Queues the statement stored for the client's session, with the given config or the last one used.
+   *
+   * @param session The WebSocket session of the client.
+   * @param requestId The client's request id, echoed if the session has no statement.
+   * @param dataNode The JSON data node with the session id and an optional config.
+   */
+  private void handleSolveCurrent(Session session, String requestId, JsonNode dataNode) throws IOException {
+    StudioSession studioSession = ProblemStatementSessionStore.getInstance().get(readSessionId(dataNode));
+    if (studioSession == null || !studioSession.hasProblemStatement()) {
+      sendError(session, requestId, "No problem statement stored for this session");
+      return;
+    }
+
+    if (dataNode.hasNonNull("config")) {
+      studioSession.setConfigs(readConfigs(dataNode));
+    }
+
+    StatementPayload problemStatement = studioSession.getProblemStatementPayload();
+    try {
+      JsonParser parser = Helper.getObjectMapper().getFactory().createParser(problemStatement.openReader());
+      if (!validateProblemStatement(session, requestId, parser, dataNode) || !admitSolve(session, requestId, problemStatement)) {
+        return;
       }
-    } catch (IOException e) {
-      System.err.println("Error sending queue position message: " + e.getMessage());
+
+      enqueueSolve(session, studioSession, problemStatement, studioSession.getConfigs(), readSolveOptions(dataNode));
+    } finally {
+      problemStatement.release();
+    }
+  }
+
+  /**
+   * Handles the SUBSCRIBE_JOB event.
+   * Adds the session to a solve's subscribers, so it receives the same progress and result frames
+   * as the session that submitted it. A finished solve's result is sent straight away.
+   *
+   * @param session The WebSocket session of the client.
+   * @param requestId The client's request id, echoed if the job is unknown.
+   * @param dataNode The JSON data node with the job id.
+   */
+  private void handleSubscribeJob(Session session, String requestId, JsonNode dataNode) throws IOException {
+    String jobId = dataNode.path("jobId").asText(null);
+    JobChannel channel = jobId == null ? null : JobChannelRegistry.getInstance().get(jobId);
+    if (channel == null) {
+      sendError(session, requestId, "Unknown or expired job: " + jobId);
+      return;
+    }
+
+    Subscriber subscriber = JobChannelRegistry.getInstance().getSubscriber(session);
+    ObjectNode reply = Helper.getObjectMapper().createObjectNode();
+    reply.put("type", WSEvent.JOB_SUBSCRIBED.name());
+    reply.putObject("data").put("jobId", jobId).put("status", channel.getStatus().name());
+    // Through the subscriber, so the acknowledgement is not overtaken by the job's own frames
+    subscriber.send(reply.toString());
+    channel.subscribe(subscriber);
+  }
+
+  /**
+   * Handles the UNSUBSCRIBE_JOB event.
+   */
+  private void handleUnsubscribeJob(Session session, JsonNode dataNode) {
+    JobChannel channel = JobChannelRegistry.getInstance().get(dataNode.path("jobId").asText(""));
+    if (channel != null) {
+      channel.unsubscribe(JobChannelRegistry.getInstance().getSubscriber(session));
+    }
+  }
+
+  /**
+   * Handles the CANCEL_JOB event.
+   * A queued solve is dropped straight away. A running solve started with partialSolutions stops after
+   * its current contract and finishes with the best solution found so far; other running solves cannot
+   * be stopped, since the planner cannot be interrupted.
+   *
+   * @param session The WebSocket session of the client.
+   * @param requestId The client's request id, echoed in the reply.
+   * @param dataNode The JSON data node with the job id.
+   */
+  private void handleCancelJob(Session session, String requestId, JsonNode dataNode) throws IOException {
+    String jobId = dataNode.path("jobId").asText(null);
+    JobChannel channel = jobId == null ? null : JobChannelRegistry.getInstance().get(jobId);
+    if (channel == null) {
+      sendError(session, requestId, "Unknown or expired job: " + jobId);
+      return;
+    }
+    if (!channel.isSubmittedBy(JobChannelRegistry.getInstance().getSubscriber(session))) {
+      sendError(session, requestId, "Job " + jobId + " can only be cancelled by the session that submitted it");
+      return;
+    }
+
+    JobChannel.Status status = channel.cancel();
+    if (status == JobChannel.Status.FINISHED) {
+      sendError(session, requestId, "Job " + jobId + " has already finished");
+      return;
+    }
+    if (status == JobChannel.Status.RUNNING && !channel.isCancelRequested()) {
+      sendError(session, requestId, "Job " + jobId + " is running without partialSolutions and cannot be stopped early");
+      return;
+    }
+
+    if (status == JobChannel.Status.QUEUED) {
+      channel.finish(solvedMessageFrame(jobId, "Solve cancelled before it started"), null, null);
+    } else {
+      publishStatus(channel, jobId, "Stop requested, the solve finishes after its current contract...");
+    }
+
+    ObjectNode reply = Helper.getObjectMapper().createObjectNode();
+    reply.put("type", WSEvent.JOB_CANCEL_REQUESTED.name());
+    reply.put("requestId", requestId);
+    reply.putObject("data").put("jobId", jobId).put("status", status == JobChannel.Status.QUEUED ? "CANCELLED" : "STOPPING");
+    session.getRemote().sendString(reply.toString());
+  }
+
+  /**
+   * Adds a solve to the queue for sequential processing to prevent concurrent executions.
+   * Provides queue position feedback to the client.
+   *
+   * @param session The WebSocket session of the client.
+   * @param studioSession The client's stored session state.
+   * @param problemStatement The problem statement, retained by the queued job until it has run.
+   * @param configs The flattened config overrides for this solve.
+   * @param options The client's opt-in solve options.
+   */
+  private void enqueueSolve(Session session, StudioSession studioSession, StatementPayload problemStatement,
+                            Map<String, String> configs, SolveOptions options) {
+    // Get current queue position
+    int queuePosition = problemSolvingQueue.size() + activeSolves.get();
+    // Every log event of the solve is kept under this id, however much of it is streamed live
+    JobLog jobLog = JobLogStore.getInstance().create();
+    String jobId = jobLog.getJobId();
+
+    // The submitter is the first subscriber; teammates can join with SUBSCRIBE_JOB
+    Subscriber submitter = JobChannelRegistry.getInstance().getSubscriber(session);
+    JobChannel channel = JobChannelRegistry.getInstance().create(jobId, submitter);
+    channel.subscribe(submitter);
+
+    // Notify subscribers about queue position
+    if (problemSolvingQueue.isEmpty() && activeSolves.get() < solveWorkers) {
+      publishStatus(channel, jobId, "Starting problem solving immediately...");
+    } else {
+      publishStatus(channel, jobId, "Request queued at position " + queuePosition + ". Waiting for previous requests to complete...");
     }
 
     // Add task to queue for sequential processing
+    StatementPayload queuedStatement = problemStatement.retain();
     problemSolvingQueue.offer(() -> {
-      isProcessingQueue.set(true);
+      activeSolves.incrementAndGet();
       try {
-        // Set current session for log streaming
-        WebSocketLogAppender.setCurrentSession(session);
+        if (!channel.markRunning()) {
+          // Cancelled while queued; its subscribers were told when the cancel arrived
+          jobLog.append(System.currentTimeMillis(), "INFO", PSStudioWebSocketHandler.class.getName(),
+              Thread.currentThread().getName(), "Solve cancelled before it started");
+          return;
+        }
+        // Set current job for log streaming and capture
+        WebSocketLogAppender.setCurrentChannel(channel);
+        WebSocketLogAppender.setCurrentJob(jobLog);
         // Notify when processing starts
-        session.getRemote().sendString("{\"type\":\"SOLVING_PROBLEM_STATEMENT\", \"data\":{\"log\":\"Processing started for this request...\", \"timestamp\":" + System.currentTimeMillis() + "}}");
+        publishStatus(channel, jobId, "Processing started for this request...");
 
-        String result = ProblemStatementStudio.getInstance().solve(inputMessage, configs);
+        // A local solve waits until the heap has room for it; solver nodes have heaps of their own
+        long predictedPeakHeap = SolveMemoryModel.getInstance().predictPeakHeapBytes(queuedStatement.length());
+        if (!SolverCoordinator.getInstance().isEnabled() && !awaitHeapHeadroom(channel, jobLog, predictedPeakHeap)) {
+          String errorMsg = "Not enough free heap for this solve: predicted peak " + formatMegabytes(predictedPeakHeap)
+              + " still not available after " + ApplicationProperties.SOLVE_ADMISSION_WAIT_SECONDS.getValue() + " s";
+          publishJobLog(channel, jobLog, "ERROR", errorMsg);
+          channel.finish(solvedMessageFrame(jobId, errorMsg), submitter, null);
+          return;
+        }
 
-        // Send completion message
-        session.getRemote().sendString("{\"type\":\"PROBLEM_STATEMENT_SOLVED\", \"data\":" + result + "}");
-      } catch (Exception e) {
-        String errorMsg = "Error while solving problem statement: " + e.getMessage();
-        try {
-          session.getRemote().sendString("{\"type\":\"PROBLEM_STATEMENT_SOLVED\", \"data\":\"" + errorMsg + "\"}");
-        } catch (IOException ioException) {
-          System.err.println("Error sending error message: " + ioException.getMessage());
+        // The planner needs the statement as one string, so it is only materialized once the job runs
+        String editedStatement = queuedStatement.readString();
+        String statement = editedStatement;
+        WarmStart warmStart = null;
+        if (options.isWarmStart()) {
+          warmStart = seedWarmStart(channel, jobLog, studioSession, editedStatement);
+          statement = warmStart.getInputMessage();
+        }
+
+        long solveStart = System.nanoTime();
+        AnytimeSolve anytime = null;
+        SolveResult solveResult;
+        if (options.isPartialSolutions()) {
+          anytime = AnytimeSolve.plan(statement, ApplicationProperties.PARTIAL_SOLUTION_INTERVAL_SECONDS.getIntValue(),
+              Helper.getObjectMapper());
+          channel.setStoppable(anytime.getContractCount() > 1);
+          if (anytime.getContractCount() > 1) {
+            publishJobLog(channel, jobLog, "INFO", "Solving in " + anytime.getContractCount() + " contracts of "
+                + anytime.describeContracts() + " planning time, with a partial solution after each but the last");
+          }
+          solveResult = anytime.run(configs, channel::isCancelRequested,
+              (contract, contracts, planningSeconds, elapsedMillis, partial, bestContract) ->
+                  publishPartialSolution(channel, jobLog, contract, contracts, planningSeconds, elapsedMillis, partial,
+                      bestContract));
+          if (anytime.isStoppedEarly()) {
+            publishJobLog(channel, jobLog, "INFO", "Solve stopped on request after contract " + anytime.getContractsRun()
+                + " of " + anytime.getContractCount() + ", keeping the solution of contract " + anytime.getBestContract());
+          }
+        } else {
+          solveResult = SolverCoordinator.getInstance().solve(statement, configs);
+        }
+        long solveMillis = (System.nanoTime() - solveStart) / 1_000_000;
+        String result = solveResult.getResult();
+        SolveMemoryUsage memoryUsage = solveResult.getMemoryUsage();
+        if (memoryUsage != null) {
+          SolveMemoryModel.getInstance().record(queuedStatement.length(), memoryUsage);
+          publishJobLog(channel, jobLog, "INFO", "Solve allocated " + formatMegabytes(memoryUsage.getAllocatedBytes())
+              + ", peak heap +" + formatMegabytes(memoryUsage.getPeakHeapDeltaBytes())
+              + " (predicted " + formatMegabytes(predictedPeakHeap) + ")");
+        }
+        JsonNode resultNode = addSummary(result, queuedStatement, memoryUsage, predictedPeakHeap, anytime);
+        if (resultNode != null && warmStart != null) {
+          ObjectNode warmStartSummary = describeWarmStart(warmStart, resultNode, solveMillis);
+          if (options.isWarmStartBaseline() && warmStart.getSeededAssignments() > 0) {
+            warmStartSummary.set("baseline", ColdBaseline.measure(editedStatement, warmStart,
+                resultNode, solveMillis, configs, message -> publishJobLog(channel, jobLog, "INFO", message)));
+          }
+          ((ObjectNode) resultNode.get("summary")).set("warm_start", warmStartSummary);
+        }
+        if (resultNode != null) {
+          result = resultNode.toString();
+        }
+
+        // Send completion message, as a diff and/or column-encoded to the submitter if it asked for that
+        String submitterFrame = null;
+        boolean columnar = options.isColumnarResult() && resultNode != null;
+        String submitterData = columnar ? ColumnarResultCodec.encode(resultNode).toString() : result;
+        if (options.isSolutionDelta() && resultNode != null) {
+          submitterFrame = buildSolvedWithDelta(studioSession, queuedStatement, jobId, resultNode, submitterData,
+              options.getBaseResultVersion());
+        } else {
+          if (resultNode != null) {
+            // Kept so the tile API can serve the solution as well
+            studioSession.recordResult(resultNode, queuedStatement);
+          }
+          if (columnar) {
+            submitterFrame = solvedFrame(jobId, null, submitterData);
+          }
+        }
+        channel.finish(solvedFrame(jobId, null, result), submitter, submitterFrame);
+      } catch (Exception | OutOfMemoryError e) {
+        // An out-of-memory solve fails its own job instead of taking the queue worker down with it
+        if (e instanceof OutOfMemoryError && !SolverCoordinator.getInstance().isEnabled()) {
+          // Kept apart from the measured solves, as a cap on the statement length admitted
+          SolveMemoryModel.getInstance().recordOutOfMemory(queuedStatement.length());
         }
+        String errorMsg = "Error while solving problem statement: " + e.getMessage();
+        jobLog.append(System.currentTimeMillis(), "ERROR", PSStudioWebSocketHandler.class.getName(),
+            Thread.currentThread().getName(), errorMsg);
+        channel.finish(solvedMessageFrame(jobId, errorMsg), submitter, null);
       } finally {
-        // Clear current session after processing
-        WebSocketLogAppender.clearCurrentSession();
-        isProcessingQueue.set(false);
+        queuedStatement.release();
+        // Clear current job and seal its log after processing
+        WebSocketLogAppender.clearCurrentChannel();
+        WebSocketLogAppender.clearCurrentJob();
+        jobLog.finish();
+        activeSolves.decrementAndGet();
       }
     });
   }
 
   /**
-   * Recursively flattens a JsonNode into a dot-notated map.
+   * Refuses a statement the memory model predicts to need more heap than SOLVE_HEAP_BUDGET_MB allows,
+   * or at least as long as one that ran out of memory. Statements are admitted while the model has too
+   * few solves to predict from, and always when they are solved on solver nodes, whose heaps are not
+   * this JVM's.
+   *
+   * @return true if the statement may be queued.
+   */
+  private boolean admitSolve(Session session, String requestId, StatementPayload problemStatement) throws IOException {
+    if (SolverCoordinator.getInstance().isEnabled()) {
+      return true;
+    }
+    SolveMemoryModel model = SolveMemoryModel.getInstance();
+    long outOfMemoryChars = model.getOutOfMemoryChars();
+    if (outOfMemoryChars > 0 && problemStatement.length() >= outOfMemoryChars) {
+      sendError(session, requestId, "Problem statement of " + problemStatement.length() + " characters is refused: a statement of "
+          + outOfMemoryChars + " characters ran out of memory, and none as long has solved since");
+      return false;
+    }
+    long predicted = model.predictPeakHeapBytes(problemStatement.length());
+    if (predicted <= model.getHeapBudgetBytes()) {
+      return true;
+    }
+    sendError(session, requestId, "Problem statement of " + problemStatement.length() + " characters is predicted to need "
+        + formatMegabytes(predicted) + " of heap, more than the solve heap budget of " + formatMegabytes(model.getHeapBudgetBytes()));
+    return false;
+  }
+
+  /**
+   * Defers a local solve until the live heap leaves room for its predicted peak, for at most
+   * SOLVE_ADMISSION_WAIT_SECONDS.
+   *
+   * @param predictedPeakHeap The predicted peak heap delta, or -1 if there is no prediction yet.
+   * @return true if the solve may run.
+   */
+  private static boolean awaitHeapHeadroom(JobChannel channel, JobLog jobLog, long predictedPeakHeap)
+      throws InterruptedException {
+    if (predictedPeakHeap < 0 || hasHeapHeadroom(predictedPeakHeap)) {
+      return true;
+    }
+    // The live heap is only known as of the last collection, so collect once before deferring
+    ManagementFactory.getMemoryMXBean().gc();
+    if (hasHeapHeadroom(predictedPeakHeap)) {
+      return true;
+    }
+
+    long waitMillis = ApplicationProperties.SOLVE_ADMISSION_WAIT_SECONDS.getIntValue() * 1000L;
+    publishJobLog(channel, jobLog, "WARN", "Solve deferred: predicted peak heap " + formatMegabytes(predictedPeakHeap) + ", "
+        + formatMegabytes(SolveMemoryMeter.maxHeapBytes() - SolveMemoryMeter.liveHeapBytes()) + " free. Waiting up to "
+        + waitMillis / 1000 + " s for memory to be released...");
+    long deadline = System.currentTimeMillis() + waitMillis;
+    while (System.currentTimeMillis() < deadline) {
+      Thread.sleep(1000);
+      if (hasHeapHeadroom(predictedPeakHeap)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean hasHeapHeadroom(long predictedPeakHeap) {
+    return SolveMemoryMeter.maxHeapBytes() - SolveMemoryMeter.liveHeapBytes() >= predictedPeakHeap;
+  }
+
+  /**
+   * Records a message in the job's log and sends it to the job's subscribers.
+   */
+  private static void publishJobLog(JobChannel channel, JobLog jobLog, String level, String message) {
+    long timestamp = System.currentTimeMillis();
+    int seq = jobLog.append(timestamp, level, PSStudioWebSocketHandler.class.getName(), Thread.currentThread().getName(), message);
+    ObjectNode frame = Helper.getObjectMapper().createObjectNode();
+    frame.put("type", "SOLVING_PROBLEM_STATEMENT");
+    frame.putObject("data")
+        .put("log", message)
+        .put("level", level)
+        .put("timestamp", timestamp)
+        .put("jobId", jobLog.getJobId())
+        .put("seq", seq);
+    channel.publish(frame.toString(), false);
+  }
+
+  /**
+   * Sends a queue or progress message to the job's subscribers without recording it in the job's log.
+   */
+  private static void publishStatus(JobChannel channel, String jobId, String message) {
+    ObjectNode frame = Helper.getObjectMapper().createObjectNode();
+    frame.put("type", "SOLVING_PROBLEM_STATEMENT");
+    frame.putObject("data")
+        .put("log", message)
+        .put("jobId", jobId)
+        .put("timestamp", System.currentTimeMillis());
+    channel.publish(frame.toString(), false);
+  }
+
+  /**
+   * Builds a job's PROBLEM_STATEMENT_SOLVED frame around result JSON that is embedded as it is.
+   *
+   * @param resultVersion The version the client should send as its next base, or null to leave it out.
+   */
+  private static String solvedFrame(String jobId, Long resultVersion, String resultJson) {
+    ObjectNode frame = Helper.getObjectMapper().createObjectNode();
+    frame.put("type", "PROBLEM_STATEMENT_SOLVED");
+    frame.put("jobId", jobId);
+    if (resultVersion != null) {
+      frame.put("resultVersion", resultVersion);
+    }
+    frame.putRawValue("data", new RawValue(resultJson));
+    return frame.toString();
+  }
+
+  /**
+   * Builds the PROBLEM_STATEMENT_SOLVED frame of a job that ended without a result, e.g. with its error.
+   */
+  private static String solvedMessageFrame(String jobId, String message) {
+    ObjectNode frame = Helper.getObjectMapper().createObjectNode();
+    frame.put("type", "PROBLEM_STATEMENT_SOLVED");
+    frame.put("jobId", jobId);
+    frame.put("data", message);
+    return frame.toString();
+  }
+
+  /**
+   * Seeds the statement with the session's previous solution, checked against the statement it was
+   * solved from. Without a previous solution the statement is solved cold.
+   */
+  private static WarmStart seedWarmStart(JobChannel channel, JobLog jobLog, StudioSession studioSession,
+                                         String statement) throws IOException {
+    JsonNode previousResult;
+    StatementPayload previousStatement;
+    synchronized (studioSession) {
+      previousResult = studioSession.getLastResult();
+      previousStatement = studioSession.getLastResultStatement();
+    }
+    JsonNode previousStatementTree = null;
+    if (previousStatement != null) {
+      try (Reader reader = previousStatement.openReader()) {
+        previousStatementTree = Helper.getObjectMapper().readTree(reader);
+      } finally {
+        previousStatement.release();
+      }
+    }
+    WarmStart warmStart = WarmStart.seed(statement, previousStatementTree, previousResult,
+        ApplicationProperties.WARM_START_MIN_PLANNING_SECONDS.getIntValue(), Helper.getObjectMapper());
+    if (warmStart.getSeededAssignments() == 0) {
+      publishJobLog(channel, jobLog, "INFO", "Warm start found no previous assignment that still holds ("
+          + warmStart.getDroppedAssignments() + " dropped, " + warmStart.getMovedAssignments()
+          + " of them because a position or the start time changed), solving cold");
+    } else {
+      publishJobLog(channel, jobLog, "INFO", "Warm start kept " + warmStart.getSeededAssignments() + " of "
+          + (warmStart.getSeededAssignments() + warmStart.getDroppedAssignments()) + " previous assignments ("
+          + warmStart.getMovedAssignments() + " dropped because a position or the start time changed) for "
+          + warmStart.getTasks() + " tasks, planning for " + AnytimeSolve.formatSeconds(warmStart.getPlanningSeconds())
+          + " s instead of " + AnytimeSolve.formatSeconds(warmStart.getFullPlanningSeconds()) + " s");
+    }
+    return warmStart;
+  }
+
+  private static ObjectNode describeWarmStart(WarmStart warmStart, JsonNode resultNode, long solveMillis) {
+    ObjectNode summary = Helper.getObjectMapper().createObjectNode();
+    summary.put("seeded_assignments", warmStart.getSeededAssignments());
+    summary.put("dropped_assignments", warmStart.getDroppedAssignments());
+    summary.put("moved_assignments", warmStart.getMovedAssignments());
+    summary.put("seeded_in_result", warmStart.countSeededIn(resultNode));
+    summary.put("tasks", warmStart.getTasks());
+    summary.put("planning_seconds", warmStart.getPlanningSeconds());
+    summary.put("full_planning_seconds", warmStart.getFullPlanningSeconds());
+    summary.put("solve_ms", solveMillis);
+    return summary;
+  }
+
+  /**
+   * Sends the solution of a contract before the last to the job's subscribers. There is at most one per
+   * contract, and contracts last at least PARTIAL_SOLUTION_INTERVAL_SECONDS, which bounds the frame rate.
+   */
+  private static void publishPartialSolution(JobChannel channel, JobLog jobLog, int contract, int contracts,
+                                             double planningSeconds, long elapsedMillis, String result,
+                                             int bestContract) {
+    JsonNode resultNode;
+    try {
+      resultNode = Helper.getObjectMapper().readTree(result);
+    } catch (IOException e) {
+      publishJobLog(channel, jobLog, "WARN", "Partial solution of contract " + contract + " is not valid JSON: " + e.getMessage());
+      return;
+    }
+    int assignments = resultNode.path("schedule").path("assignments").size();
+    publishJobLog(channel, jobLog, "INFO", "Contract " + contract + " of " + contracts + " ran for "
+        + AnytimeSolve.formatSeconds(planningSeconds) + " s planning time; the best solution so far, from contract "
+        + bestContract + ", has " + assignments + " assignments and " + SolutionSummary.describeObjective() + " "
+        + SolutionSummary.readObjectiveValue(resultNode));
+
+    ObjectNode frame = Helper.getObjectMapper().createObjectNode();
+    frame.put("type", WSEvent.PARTIAL_SOLUTION.name());
+    frame.put("jobId", jobLog.getJobId());
+    ObjectNode data = frame.putObject("data");
+    data.put("contract", contract);
+    data.put("contracts", contracts);
+    data.put("best_contract", bestContract);
+    data.put("planning_seconds", planningSeconds);
+    data.put("elapsed_ms", elapsedMillis);
+    data.put("assignment_count", assignments);
+    data.set("objective", SolutionSummary.readObjective(resultNode));
+    data.set("solution", resultNode);
+    channel.publish(frame.toString(), false);
+  }
+
+  private static String formatMegabytes(long bytes) {
+    return bytes < 0 ? "n/a" : String.format("%.1f MB", bytes / (double) MB);
+  }
+
+  /**
+   * Adds the analytics block the results page renders, computed here in one pass instead of in the browser,
+   * with the memory the solve took and, for a solve run in contracts, how far it got.
+   *
+   * @param memoryUsage The measured figures, or null if the solver did not report them.
+   * @param predictedPeakHeap The peak heap delta the model predicted, or -1.
+   * @param anytime The contracts the solve was run in, or null if it was solved in one go.
+   * @return The result with its summary, or null if the result is not a JSON object.
+   */
+  private JsonNode addSummary(String result, StatementPayload statement, SolveMemoryUsage memoryUsage,
+                              long predictedPeakHeap, AnytimeSolve anytime) {
+    try {
+      JsonNode resultNode = Helper.getObjectMapper().readTree(result);
+      if (!resultNode.isObject()) {
+        return null;
+      }
+      ObjectNode summary = SolutionSummary.compute(resultNode, statement, Helper.getObjectMapper().getFactory());
+      if (memoryUsage != null) {
+        summary.putObject("solve_memory")
+            .put("statement_chars", statement.length())
+            .put("allocated_bytes", memoryUsage.getAllocatedBytes())
+            .put("peak_heap_delta_bytes", memoryUsage.getPeakHeapDeltaBytes())
+            .put("predicted_peak_heap_bytes", predictedPeakHeap)
+            .put("heap_budget_bytes", SolveMemoryModel.getInstance().getHeapBudgetBytes());
+      }
+      if (anytime != null) {
+        ObjectNode contracts = summary.putObject("anytime");
+        contracts.put("contracts", anytime.getContractCount());
+        contracts.put("contracts_run", anytime.getContractsRun());
+        contracts.put("stopped_early", anytime.isStoppedEarly());
+        contracts.put("best_contract", anytime.getBestContract());
+        contracts.set("planning_seconds", Helper.getObjectMapper().valueToTree(anytime.getContracts()));
+      }
+      ((ObjectNode) resultNode).set("summary", summary);
+      return resultNode;
+    } catch (IOException e) {
+      System.err.println("Error computing solution summary: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Builds the submitter's result frame: a keyed diff against the session's previous result when
+   * the client still holds that result and the diff is smaller, otherwise the full result.
+   * Either way the frame carries the result version the client should send as its next base.
+   *
+   * @param result The full result as sent when no diff is used, possibly column-encoded.
    */
-  private void flattenJson(JsonNode node, String prefix, Map<String, String> result) {
-    if (node.isObject()) {
-      node.fieldNames().forEachRemaining(fieldName -> {
-        String newPrefix = prefix.isEmpty() ? fieldName : prefix + "." + fieldName;
-        flattenJson(node.get(fieldName), newPrefix, result);
-      });
-    } else if (node.isArray()) {
-      for (int i = 0; i < node.size(); i++) {
-        String newPrefix = prefix + "[" + i + "]";
-        flattenJson(node.get(i), newPrefix, result);
+  private String buildSolvedWithDelta(StudioSession studioSession, StatementPayload statement, String jobId,
+                                      JsonNode resultNode, String result, Long clientBaseVersion) {
+    JsonNode previousResult;
+    long previousVersion;
+    long resultVersion;
+    synchronized (studioSession) {
+      previousResult = studioSession.getLastResult();
+      previousVersion = studioSession.getResultVersion();
+      resultVersion = studioSession.recordResult(resultNode, statement);
+    }
+
+    String data = result;
+    if (previousResult != null && clientBaseVersion != null && clientBaseVersion == previousVersion) {
+      ObjectNode delta = SolutionDelta.diff(previousResult, resultNode);
+      if (delta != null) {
+        delta.put("base_version", previousVersion);
+        ObjectNode wrapper = Helper.getObjectMapper().createObjectNode();
+        wrapper.set("solution_delta", delta);
+        String deltaData = wrapper.toString();
+        if (deltaData.length() < result.length()) {
+          data = deltaData;
+        }
       }
-    } else { // Value node
-      result.put(prefix, node.asText());
     }
+
+    return solvedFrame(jobId, resultVersion, data);
+  }
+
+  /**
+   * Validates a problem statement on the receiving thread so broken statements never reach the solver queue.
+   * All errors are sent back in a single ERROR reply.
+   *
+   * @param session The WebSocket session of the client.
+   * @param requestId The client's request id, echoed in the reply.
+   * @param statementParser A parser positioned before the problem statement.
+   * @param dataNode The JSON data node, read for the optional gridSize bounds.
+   * @return true if the statement is valid.
+   */
+  private boolean validateProblemStatement(Session session, String requestId, JsonParser statementParser, JsonNode dataNode)
+      throws IOException {
+    JsonNode gridSize = dataNode.path("gridSize");
+    Integer width = gridSize.path("width").canConvertToInt() ? gridSize.path("width").asInt() : null;
+    Integer height = gridSize.path("height").canConvertToInt() ? gridSize.path("height").asInt() : null;
+
+    List<ValidationError> errors;
+    try (JsonParser parser = statementParser) {
+      errors = new ProblemStatementValidator(width, height).validate(parser);
+    }
+    if (errors.isEmpty()) {
+      return true;
+    }
+
+    StringBuilder summary = new StringBuilder("Problem statement has " + errors.size() + " error(s): ");
+    for (int i = 0; i < Math.min(errors.size(), 5); i++) {
+      summary.append(i > 0 ? "; " : "").append(errors.get(i));
+    }
+    if (errors.size() > 5) {
+      summary.append("; ...");
+    }
+
+    ObjectNode reply = Helper.getObjectMapper().createObjectNode();
+    reply.put("type", "ERROR");
+    reply.put("requestId", requestId);
+    reply.put("error", summary.toString());
+    reply.putObject("data").set("errors", Helper.getObjectMapper().valueToTree(errors));
+    session.getRemote().sendString(reply.toString());
+    return false;
+  }
+
+  private void sendError(Session session, String requestId, String errorMessage) throws IOException {
+    ObjectNode reply = Helper.getObjectMapper().createObjectNode();
+    reply.put("type", "ERROR");
+    reply.put("requestId", requestId);
+    reply.put("error", errorMessage);
+    session.getRemote().sendString(reply.toString());
+  }
+
+  /**
+   * Sends a newly issued session id to the client it belongs to only, not to the job's subscribers.
+   * Clients reconnect for every solve, so they send it back with later requests to reuse their statement.
+   */
+  private void sendSessionIssued(Session session, String requestId, String sessionId) {
+    ObjectNode reply = Helper.getObjectMapper().createObjectNode();
+    reply.put("type", WSEvent.SESSION_ISSUED.name());
+    reply.put("requestId", requestId);
+    reply.putObject("data").put("sessionId", sessionId);
+    // Queued with the job's frames that follow, so it arrives before them
+    JobChannelRegistry.getInstance().getSubscriber(session).send(reply.toString());
+  }
+
+  private String readSessionId(JsonNode dataNode) {
+    JsonNode sessionId = dataNode.get("sessionId");
+    return sessionId != null && sessionId.isTextual() ? sessionId.asText() : null;
+  }
+
+  private Long readVersion(JsonNode dataNode, String field) {
+    JsonNode version = dataNode.get(field);
+    return version != null && version.canConvertToLong() ? version.asLong() : null;
+  }
+
+  private SolveOptions readSolveOptions(JsonNode dataNode) {
+    SolveOptions options = new SolveOptions();
+    options.setSolutionDelta(dataNode.path("solutionDelta").asBoolean(false));
+    options.setBaseResultVersion(readVersion(dataNode, "baseResultVersion"));
+    options.setResultEncoding(dataNode.path("resultEncoding").asText(null));
+    options.setPartialSolutions(dataNode.path("partialSolutions").asBoolean(false));
+    options.setWarmStart(dataNode.path("warmStart").asBoolean(false));
+    options.setWarmStartBaseline(dataNode.path("warmStartBaseline").asBoolean(false));
+    return options;
+  }
+
+  private Map<String, String> readConfigs(JsonNode dataNode) {
+    return ConfigFlattener.flatten(dataNode.get("config"));
   }
 
 }
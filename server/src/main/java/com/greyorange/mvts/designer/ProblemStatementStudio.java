@@ -12,7 +12,12 @@ import com.greyorange.multifleetplanner_common.transit_time.TransitTimeDB;
 import com.greyorange.mvts.core.Optimizer;
 import com.greyorange.mvts.costs.ObjectiveFunction;
 import com.greyorange.mvts.database.BotCycleTimeDB;
+import com.greyorange.mvts.designer.cluster.SolverCoordinator;
+import com.greyorange.mvts.designer.cluster.SolverNodeHandler;
+import com.greyorange.mvts.designer.config.ConfigOverlayManager;
 import com.greyorange.mvts.designer.properties.ApplicationProperties;
+import com.greyorange.mvts.designer.replay.ReplayCli;
+import com.greyorange.mvts.designer.warmup.WarmupSolve;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -25,6 +30,7 @@ import org.joda.time.DateTime;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -127,10 +133,14 @@ public class ProblemStatementStudio {
   }
 
   public Task getTask() {
+    return getTask("task-" + (1), 1, "1");
+  }
+
+  public Task getTask(String taskID, int ppsID, String msuID) {
     Task task = new Task();
-    task.setPpsID(1);
-    task.setMsuID("1");
-    task.setTaskID("task-" + (1));
+    task.setPpsID(ppsID);
+    task.setMsuID(msuID);
+    task.setTaskID(taskID);
     task.setTaskType(TaskType.PICK);
     task.setTransportEntityType(TransportEntityType.RTP);
     task.setCoordinate(new Coordinate(0,0));
@@ -147,7 +157,7 @@ public class ProblemStatementStudio {
     task.setServicedOrders(new ServicedOrder[]{servicedOrder});
 
     ServicedBins servicedBins = new ServicedBins();
-    servicedBins.setId(1+"-1");
+    servicedBins.setId(ppsID+"-1");
     servicedBins.setVirtualIdentifier(0);
     task.setServicedBins(List.of(servicedBins));
 
@@ -207,20 +217,21 @@ public class ProblemStatementStudio {
   public String solve(String inputMessage, Map<String, String> configs) {
     beforeEach();
 
-    Config config = Config.getInstance();
-    Properties originalProperties = (Properties) config.getProperties().clone();
+    ConfigOverlayManager configOverlays = ConfigOverlayManager.getInstance();
 
     String res = null;
     try {
       res = Helper.getObjectMapper().writeValueAsString(new SchedulerResponse());
-      updateApplicationProperties(configs);
+      // Only reloads the planner properties when this config differs from the previous solve's
+      // or the previous solve changed them
+      configOverlays.activate(configs);
       res = getOutput(inputMessage);
 
     } catch (Exception e) {
       e.printStackTrace();
       throw new RuntimeException("Failed to process input message", e);
     } finally {
-      updateApplicationProperties((Map) originalProperties);
+      configOverlays.verifyActive();
     }
 
     return res;
@@ -233,38 +244,21 @@ public class ProblemStatementStudio {
       Method processMessage = queueManagerClass.getDeclaredMethod("processMessage", String.class);
       processMessage.setAccessible(true);
       return (String) processMessage.invoke(null, inputMessage);
+    } catch (InvocationTargetException e) {
+      // Out of memory is passed on as such, so callers can tell it from a planner failure
+      if (e.getCause() instanceof OutOfMemoryError) {
+        throw (OutOfMemoryError) e.getCause();
+      }
+      e.printStackTrace();
+      throw new RuntimeException("Failed to process message", e);
     } catch (Exception e) {
       e.printStackTrace();
       throw new RuntimeException("Failed to process message", e);
     }
   }
 
-  public void updateApplicationProperties(Map<String, String> configs) {
-    Config config = Config.getInstance();
-    Properties properties = config.getProperties();
-
-    for (Map.Entry<String, String> entry : configs.entrySet()) {
-      String key = entry.getKey();
-      String value = entry.getValue();
-      properties.setProperty(key, value);
-    }
-
-    com.greyorange.multifleetplanner.core.ApplicationProperties.load(properties);
-    com.greyorange.mvts.core.ApplicationProperties.load(properties);
-    com.greyorange.taskscheduler.core.ApplicationProperties.load(properties);
-    com.greyorange.subtaskplanner.core.ApplicationProperties.load(properties);
-    com.greyorange.multifleetplanner_common.core.ApplicationProperties.load(properties);
-  }
-
   public void beforeEach() {
-    Config.reset();
-    Config config = Config.getInstance();
-    Properties properties = config.getProperties();
-    com.greyorange.multifleetplanner.core.ApplicationProperties.load(properties);
-    com.greyorange.mvts.core.ApplicationProperties.load(properties);
-    com.greyorange.taskscheduler.core.ApplicationProperties.load(properties);
-    com.greyorange.subtaskplanner.core.ApplicationProperties.load(properties);
-    com.greyorange.multifleetplanner_common.core.ApplicationProperties.load(properties);
+    // Config and ApplicationProperties are handled by ConfigOverlayManager in solve()
     BackToStorableCache.getInstance().clear();
     GoingToPPSCache.getInstance().clear();
     ChargeTaskCache.getInstance().clear();
@@ -272,7 +266,6 @@ public class ProblemStatementStudio {
     ObjectiveFunction.setPpsToNonMSIOBin(new HashMap<>());
     BotCycleTimeDB.reset();
     MsuMap.getInstance().reset();
-    Helper.updateProperties("TEST_MODE", "true");
     TransitTimeDB.getInstance().reset();
 
     // clear aisle to aisle map
@@ -305,12 +298,45 @@ public class ProblemStatementStudio {
   }
 
   public static void main(String[] args) throws Exception {
+    // Offline replay of captured inputs; the solves run in worker processes of their own
+    if (args.length > 0 && args[0].equals("--replay")) {
+      System.exit(ReplayCli.run(Arrays.copyOfRange(args, 1, args.length)));
+    }
+
     com.greyorange.multifleetplanner.server.Server.getInstance();
 
+    // Used by the appcds profile to record the classes loaded by a solve
+    if (Arrays.asList(args).contains("--warmup-only")) {
+      new WarmupSolve().run();
+      System.exit(0);
+    }
+    if (Boolean.parseBoolean(ApplicationProperties.WARMUP_ON_STARTUP.getValue())) {
+      new WarmupSolve().run();
+    }
+
+    // A solver node only serves solves for a coordinator, optionally on the port given after the flag
+    int nodeFlag = Arrays.asList(args).indexOf("--solver-node");
+    if (nodeFlag >= 0) {
+      int port = nodeFlag + 1 < args.length && args[nodeFlag + 1].matches("\\d{1,5}")
+          ? Integer.parseInt(args[nodeFlag + 1])
+          : ApplicationProperties.SOLVER_NODE_PORT.getIntValue();
+      startSolverNode(port);
+      return;
+    }
+
+    SolverCoordinator.getInstance().start();
     startApiServer();
     startWsServer();
   }
 
+  private static void startSolverNode(int port) throws Exception {
+    Server nodeServer = new Server(port);
+    nodeServer.setHandler(new SolverNodeHandler());
+    nodeServer.start();
+    System.out.println("Solver node at http://localhost:" + port + "/solve");
+    nodeServer.join();
+  }
+
   private static void startApiServer() {
     new Thread(() -> {
       try {
@@ -1,37 +1,40 @@
 package com.greyorange.mvts.designer;
 
+import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
 import ch.qos.logback.core.AppenderBase;
 import ch.qos.logback.core.encoder.Encoder;
-import org.eclipse.jetty.websocket.api.Session;
-
-import java.io.IOException;
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import com.greyorange.mvts.designer.joblog.JobLog;
+import com.greyorange.mvts.designer.properties.ApplicationProperties;
+import com.greyorange.mvts.designer.subscription.JobChannel;
 
 /**
- * Custom Logback appender that streams log messages to WebSocket sessions
+ * Custom Logback appender that streams log messages to the sessions subscribed to the current job.
+ * Events logged while a job is set are also captured in that job's {@link JobLog}, so the live
+ * stream can be sampled with WS_LOG_SAMPLE_RATE while the full log stays available over REST.
  */
 public class WebSocketLogAppender extends AppenderBase<ILoggingEvent> {
 
-    private static final Set<Session> activeSessions = new CopyOnWriteArraySet<>();
-    private static final ThreadLocal<Session> currentSession = new ThreadLocal<>();
+    private static final ThreadLocal<JobChannel> currentChannel = new ThreadLocal<>();
+    private static final ThreadLocal<JobLog> currentJob = new ThreadLocal<>();
     private Encoder<ILoggingEvent> encoder;
+    private int sampleRate = 1;
 
-    public static void addSession(Session session) {
-        activeSessions.add(session);
+    public static void setCurrentChannel(JobChannel channel) {
+        currentChannel.set(channel);
     }
 
-    public static void removeSession(Session session) {
-        activeSessions.remove(session);
+    public static void clearCurrentChannel() {
+        currentChannel.remove();
     }
 
-    public static void setCurrentSession(Session session) {
-        currentSession.set(session);
+    public static void setCurrentJob(JobLog jobLog) {
+        currentJob.set(jobLog);
     }
 
-    public static void clearCurrentSession() {
-        currentSession.remove();
+    public static void clearCurrentJob() {
+        currentJob.remove();
     }
 
     public void setEncoder(Encoder<ILoggingEvent> encoder) {
@@ -45,31 +48,54 @@ public class WebSocketLogAppender extends AppenderBase<ILoggingEvent> {
         }
 
         try {
+            JobLog jobLog = currentJob.get();
+            int seq = -1;
+            if (jobLog != null) {
+                seq = jobLog.append(event.getTimeStamp(), event.getLevel().toString(), event.getLoggerName(),
+                    event.getThreadName(), getFullMessage(event));
+            }
+
+            JobChannel channel = currentChannel.get();
+            if (channel == null || !shouldStream(event, seq)) {
+                return;
+            }
+
             // Format the log message
             String logMessage = new String(encoder.encode(event)).trim();
 
             // Create WebSocket message with SOLVING_PROBLEM_STATEMENT event type
+            String jobFields = seq < 0 ? "" : String.format(", \"jobId\":\"%s\", \"seq\":%d", jobLog.getJobId(), seq);
             String wsMessage = String.format(
-                "{\"type\":\"SOLVING_PROBLEM_STATEMENT\", \"data\":{\"log\":\"%s\", \"level\":\"%s\", \"logger\":\"%s\", \"timestamp\":%d}}",
+                "{\"type\":\"SOLVING_PROBLEM_STATEMENT\", \"data\":{\"log\":\"%s\", \"level\":\"%s\", \"logger\":\"%s\", \"timestamp\":%d%s}}",
                 escapeJson(logMessage),
                 event.getLevel().toString(),
                 event.getLoggerName(),
-                event.getTimeStamp()
+                event.getTimeStamp(),
+                jobFields
             );
 
-            Session session = currentSession.get();
-            if (session != null && session.isOpen()) {
-                try {
-                    session.getRemote().sendString(wsMessage);
-                } catch (IOException e) {
-                    addError("Failed to send log message to WebSocket session", e);
-                }
-            }
+            // Encoded once, then queued for every session watching the job
+            channel.publish(wsMessage, true);
         } catch (Exception e) {
             addError("Error in WebSocketLogAppender", e);
         }
     }
 
+    /**
+     * Warnings and errors are always streamed; other captured events only one in every WS_LOG_SAMPLE_RATE.
+     */
+    private boolean shouldStream(ILoggingEvent event, int seq) {
+        return sampleRate <= 1 || seq < 0 || event.getLevel().isGreaterOrEqual(Level.WARN) || seq % sampleRate == 0;
+    }
+
+    private String getFullMessage(ILoggingEvent event) {
+        String message = event.getFormattedMessage();
+        if (event.getThrowableProxy() != null) {
+            message = message + System.lineSeparator() + ThrowableProxyUtil.asString(event.getThrowableProxy());
+        }
+        return message == null ? "" : message;
+    }
+
     private String escapeJson(String input) {
         if (input == null) {
             return "";
@@ -88,6 +114,7 @@ public class WebSocketLogAppender extends AppenderBase<ILoggingEvent> {
             return;
         }
 
+        sampleRate = ApplicationProperties.WS_LOG_SAMPLE_RATE.getIntValue();
         encoder.start();
         super.start();
     }
@@ -0,0 +1,240 @@
+package com.greyorange.mvts.designer.anytime;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greyorange.mvts.designer.cluster.SolveResult;
+import com.greyorange.mvts.designer.cluster.SolverCoordinator;
+import com.greyorange.mvts.designer.solution.SolutionSummary;
+import com.greyorange.mvts.designer.warmstart.WarmStart;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs a solve in steps, so a result is available before the statement's whole planning budget is spent.
+ *
+ * The planner only returns a solution when its planning_duration_seconds are up and cannot be asked for
+ * its best solution so far, nor stopped. The budget is therefore split into contracts of growing length,
+ * each a complete solve with a planning duration of its own: the first lasts firstContractSeconds, each
+ * next one twice the one before, and the last takes the rest, which is never less than half the budget.
+ *
+ * A contract is seeded with the best solution so far (see {@link WarmStart}) only if that solution had at
+ * least half the budget of planning behind it. Seeded assignments are never revisited, so seeding from a
+ * short early contract would lock its quality into the final solution; otherwise a contract starts over.
+ * With the contracts planned here that leaves the last contract, at least half the budget, unseeded, so
+ * the final solution is about as good as one planned with half the budget, not the whole.
+ *
+ * The best solution is the one with the best objective (see {@link SolutionSummary#readObjectiveValue}).
+ * A seeded solution that left out any seeded assignment covers less work and never replaces the best;
+ * among the others, one without an objective replaces the one before. Every contract but the last yields
+ * a partial solution, the best so far, and the solve can be stopped between contracts, keeping it. A
+ * budget shorter than two first contracts is solved in one go.
+ */
+public class AnytimeSolve {
+
+  static final String PLANNING_DURATION_FIELD = "planning_duration_seconds";
+
+  private final String inputMessage;
+  private final List<Double> contracts;
+  private final ObjectMapper mapper;
+  private int contractsRun;
+  private int bestContract;
+  private boolean stoppedEarly;
+
+  private AnytimeSolve(String inputMessage, List<Double> contracts, ObjectMapper mapper) {
+    this.inputMessage = inputMessage;
+    this.contracts = contracts;
+    this.mapper = mapper;
+  }
+
+  /**
+   * Plans the contracts of a statement's solve.
+   *
+   * @param inputMessage The problem statement JSON.
+   * @param firstContractSeconds The planning duration of the first contract.
+   * @param mapper The mapper used to read the solutions and stream the statement.
+   */
+  public static AnytimeSolve plan(String inputMessage, int firstContractSeconds, ObjectMapper mapper) throws IOException {
+    Double budget = readPlanningDuration(inputMessage, mapper.getFactory());
+    List<Double> contracts = budget == null ? Collections.emptyList() : planContracts(budget, firstContractSeconds);
+    return new AnytimeSolve(inputMessage, contracts, mapper);
+  }
+
+  static List<Double> planContracts(double budget, int firstContractSeconds) {
+    List<Double> contracts = new ArrayList<>();
+    double planned = 0;
+    double next = firstContractSeconds;
+    while (next > 0 && planned + next <= budget / 2) {
+      contracts.add(next);
+      planned += next;
+      next *= 2;
+    }
+    contracts.add(budget - planned);
+    return contracts;
+  }
+
+  /**
+   * Number of contracts the solve is split into; 1 if it is solved in one go.
+   */
+  public int getContractCount() {
+    return Math.max(1, contracts.size());
+  }
+
+  public List<Double> getContracts() {
+    return contracts;
+  }
+
+  /**
+   * The contracts' planning durations for the solve log, e.g. "5 + 10 + 45 s".
+   */
+  public String describeContracts() {
+    StringBuilder description = new StringBuilder();
+    for (double contract : contracts) {
+      description.append(description.length() > 0 ? " + " : "").append(formatSeconds(contract));
+    }
+    return description.append(" s").toString();
+  }
+
+  public static String formatSeconds(double seconds) {
+    return seconds == Math.rint(seconds) ? Long.toString((long) seconds) : Double.toString(seconds);
+  }
+
+  public int getContractsRun() {
+    return contractsRun;
+  }
+
+  /**
+   * The 1-based number of the contract whose solution was returned.
+   */
+  public int getBestContract() {
+    return bestContract;
+  }
+
+  /**
+   * True if the solve was stopped before its last contract.
+   */
+  public boolean isStoppedEarly() {
+    return stoppedEarly;
+  }
+
+  /**
+   * Runs the contracts until the last one or until a stop is requested.
+   *
+   * @param configs The flattened config overrides for this solve.
+   * @param stopRequested Checked after each contract.
+   * @param listener Told about the best solution so far after every contract but the last.
+   * @return The best solution of the contracts run.
+   */
+  public SolveResult run(Map<String, String> configs, BooleanSupplier stopRequested, PartialSolutionListener listener)
+      throws IOException {
+    if (contracts.size() <= 1) {
+      contractsRun = 1;
+      bestContract = 1;
+      return SolverCoordinator.getInstance().solve(inputMessage, configs);
+    }
+
+    long start = System.currentTimeMillis();
+    double budget = contracts.stream().mapToDouble(Double::doubleValue).sum();
+    JsonNode statement = null;
+    SolveResult best = null;
+    JsonNode bestResult = null;
+    Double bestObjective = null;
+    // Planning time behind the best solution, including that of the solutions it was seeded from
+    double bestPlanningSeconds = 0;
+    for (double contract : contracts) {
+      WarmStart seeding = null;
+      String contractStatement = inputMessage;
+      if (bestResult != null && bestPlanningSeconds >= budget / 2) {
+        if (statement == null) {
+          statement = mapper.readTree(inputMessage);
+        }
+        seeding = WarmStart.seed(inputMessage, statement, bestResult, 0, mapper);
+        contractStatement = seeding.getInputMessage();
+      }
+      SolveResult solveResult = SolverCoordinator.getInstance()
+          .solve(withPlanningDuration(contractStatement, contract, mapper.getFactory()), configs);
+      contractsRun++;
+
+      JsonNode result = mapper.readTree(solveResult.getResult());
+      Double objective = SolutionSummary.readObjectiveValue(result);
+      boolean comparable = seeding == null || seeding.isCoveredBy(result);
+      if (best == null || comparable && (objective == null || bestObjective == null
+          || SolutionSummary.isAtLeastAsGood(objective, bestObjective))) {
+        bestPlanningSeconds = contract + (seeding != null ? bestPlanningSeconds : 0);
+        best = solveResult;
+        bestResult = result;
+        bestObjective = objective;
+        bestContract = contractsRun;
+      }
+      if (contractsRun == contracts.size()) {
+        break;
+      }
+      listener.onPartialSolution(contractsRun, contracts.size(), contract, System.currentTimeMillis() - start,
+          best.getResult(), bestContract);
+      if (stopRequested.getAsBoolean()) {
+        stoppedEarly = true;
+        break;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Returns a copy of a statement with its planning duration replaced, streamed so large statements are not parsed into a tree.
+   */
+  public static String withPlanningDuration(String inputMessage, double seconds, JsonFactory factory) throws IOException {
+    StringWriter statement = new StringWriter(inputMessage.length() + 16);
+    try (JsonParser parser = factory.createParser(inputMessage);
+         JsonGenerator generator = factory.createGenerator(statement)) {
+      parser.nextToken();
+      generator.writeStartObject();
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        parser.nextToken();
+        if (PLANNING_DURATION_FIELD.equals(field)) {
+          generator.writeFieldName(field);
+          if (seconds == Math.rint(seconds)) {
+            generator.writeNumber((long) seconds);
+          } else {
+            generator.writeNumber(seconds);
+          }
+          parser.skipChildren();
+        } else {
+          generator.writeFieldName(field);
+          generator.copyCurrentStructure(parser);
+        }
+      }
+      generator.writeEndObject();
+    }
+    return statement.toString();
+  }
+
+  /**
+   * Returns the statement's planning duration, or null if it has none the planner would accept.
+   */
+  private static Double readPlanningDuration(String inputMessage, JsonFactory factory) throws IOException {
+    try (JsonParser parser = factory.createParser(inputMessage)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return null;
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        parser.nextToken();
+        if (PLANNING_DURATION_FIELD.equals(field)) {
+          return parser.currentToken().isNumeric() && parser.getValueAsDouble() > 0 ? parser.getValueAsDouble() : null;
+        }
+        parser.skipChildren();
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,18 @@
+package com.greyorange.mvts.designer.anytime;
+
+/**
+ * Receives the best solution an {@link AnytimeSolve} has after each contract but its last.
+ */
+public interface PartialSolutionListener {
+
+  /**
+   * @param contract The 1-based number of the contract just run.
+   * @param contracts The number of contracts the solve is split into.
+   * @param planningSeconds The planning duration of that contract.
+   * @param elapsedMillis Time since the first contract started.
+   * @param result The planner's result JSON of the best solution so far.
+   * @param bestContract The 1-based number of the contract that found it.
+   */
+  void onPartialSolution(int contract, int contracts, double planningSeconds, long elapsedMillis, String result,
+                         int bestContract);
+}
@@ -0,0 +1,41 @@
+package com.greyorange.mvts.designer.cluster;
+
+import com.greyorange.mvts.designer.ProblemStatementStudio;
+import com.greyorange.mvts.designer.memory.SolveMemoryMeter;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs solves on this JVM's planner one at a time.
+ *
+ * The planner keeps its caches and configuration in static state, so concurrent solves in one
+ * JVM would corrupt each other. Everything that solves locally goes through here, and the number
+ * of waiting and running solves is reported to coordinators as the node's queue depth. Running one
+ * solve at a time also lets each solve's memory be measured on its own.
+ */
+public final class LocalSolver {
+
+  private static final Object solveLock = new Object();
+  private static final AtomicInteger queueDepth = new AtomicInteger();
+
+  private LocalSolver() {
+  }
+
+  public static SolveResult solve(String inputMessage, Map<String, String> configs) {
+    queueDepth.incrementAndGet();
+    try {
+      synchronized (solveLock) {
+        SolveMemoryMeter meter = SolveMemoryMeter.start();
+        String result = ProblemStatementStudio.getInstance().solve(inputMessage, configs);
+        return new SolveResult(result, meter.stop());
+      }
+    } finally {
+      queueDepth.decrementAndGet();
+    }
+  }
+
+  public static int getQueueDepth() {
+    return queueDepth.get();
+  }
+}
@@ -0,0 +1,28 @@
+package com.greyorange.mvts.designer.cluster;
+
+import com.greyorange.mvts.designer.memory.SolveMemoryUsage;
+
+/**
+ * The planner's result JSON together with the memory the solve took, wherever it ran.
+ */
+public class SolveResult {
+
+  private final String result;
+  private final SolveMemoryUsage memoryUsage;
+
+  public SolveResult(String result, SolveMemoryUsage memoryUsage) {
+    this.result = result;
+    this.memoryUsage = memoryUsage;
+  }
+
+  public String getResult() {
+    return result;
+  }
+
+  /**
+   * The measured figures, or null if the solver node did not report them.
+   */
+  public SolveMemoryUsage getMemoryUsage() {
+    return memoryUsage;
+  }
+}
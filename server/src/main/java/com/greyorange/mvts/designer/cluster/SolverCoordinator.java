@@ -0,0 +1,240 @@
+package com.greyorange.mvts.designer.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.greyorange.multifleetplanner.helpers.Helper;
+import com.greyorange.mvts.designer.memory.SolveMemoryUsage;
+import com.greyorange.mvts.designer.properties.ApplicationProperties;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatches solves to the remote solver nodes listed in SOLVER_NODES.
+ *
+ * Nodes are other instances of this server started with --solver-node. Each solve goes to the healthy
+ * node with the lowest load; if the node cannot be reached or answers with a server error, it is marked
+ * down and the solve is sent to the next one. A node that rejects the solve (any 4xx) or does not answer
+ * within SOLVER_NODE_TIMEOUT_SECONDS fails the solve without a retry: the statement would be rejected
+ * everywhere, or the node may still be solving it. Nodes are polled on /health every
+ * SOLVER_HEALTH_INTERVAL_SECONDS and come back once they answer again. When no node is left the solve
+ * runs on this JVM, unless SOLVER_LOCAL_FALLBACK is off. Without SOLVER_NODES every solve runs locally.
+ */
+public class SolverCoordinator {
+
+  private static SolverCoordinator instance;
+
+  private final List<SolverNode> nodes;
+  private final HttpClient client;
+  private final Duration solveTimeout;
+  private final boolean localFallback;
+  private ScheduledExecutorService healthChecker;
+
+  private SolverCoordinator() {
+    List<SolverNode> configured = new ArrayList<>();
+    for (String node : ApplicationProperties.SOLVER_NODES.getValue().split(",")) {
+      if (!node.isBlank()) {
+        configured.add(new SolverNode(URI.create(node.trim())));
+      }
+    }
+    nodes = Collections.unmodifiableList(configured);
+    client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    solveTimeout = Duration.ofSeconds(ApplicationProperties.SOLVER_NODE_TIMEOUT_SECONDS.getIntValue());
+    localFallback = Boolean.parseBoolean(ApplicationProperties.SOLVER_LOCAL_FALLBACK.getValue());
+  }
+
+  public static SolverCoordinator getInstance() {
+    if (instance == null) {
+      synchronized (SolverCoordinator.class) {
+        if (instance == null) {
+          instance = new SolverCoordinator();
+        }
+      }
+    }
+    return instance;
+  }
+
+  public boolean isEnabled() {
+    return !nodes.isEmpty();
+  }
+
+  public List<SolverNode> getNodes() {
+    return nodes;
+  }
+
+  /**
+   * Number of solves that can run at the same time: one per node, or one when solving locally.
+   */
+  public int getCapacity() {
+    return Math.max(1, nodes.size());
+  }
+
+  /**
+   * Checks every node once and then keeps polling them in the background.
+   */
+  public synchronized void start() {
+    if (!isEnabled() || healthChecker != null) {
+      return;
+    }
+    checkHealth();
+    long interval = ApplicationProperties.SOLVER_HEALTH_INTERVAL_SECONDS.getIntValue();
+    healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "solver-health-check");
+      thread.setDaemon(true);
+      return thread;
+    });
+    healthChecker.scheduleWithFixedDelay(this::checkHealth, interval, interval, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Solves the problem statement on the least loaded healthy node, re-dispatching to the next node on failure.
+   *
+   * @param inputMessage The problem statement JSON.
+   * @param configs The flattened config overrides for this solve.
+   * @return The planner's result JSON and the memory the solve took.
+   */
+  public SolveResult solve(String inputMessage, Map<String, String> configs) {
+    if (!isEnabled()) {
+      return LocalSolver.solve(inputMessage, configs);
+    }
+
+    Set<SolverNode> tried = new HashSet<>();
+    SolverNode node;
+    while ((node = pickNode(tried)) != null) {
+      try {
+        return solveOn(node, inputMessage, configs);
+      } catch (NodeFailureException e) {
+        System.err.println("Solver node " + node + " failed, re-dispatching: " + e.getMessage());
+        node.markDown();
+      } finally {
+        node.finished();
+      }
+    }
+
+    if (!localFallback) {
+      throw new RuntimeException("No solver node available");
+    }
+    System.err.println("No solver node available, solving locally");
+    return LocalSolver.solve(inputMessage, configs);
+  }
+
+  private synchronized SolverNode pickNode(Set<SolverNode> tried) {
+    SolverNode best = null;
+    for (SolverNode node : nodes) {
+      if (node.isHealthy() && !tried.contains(node) && (best == null || node.getLoad() < best.getLoad())) {
+        best = node;
+      }
+    }
+    if (best != null) {
+      tried.add(best);
+      best.dispatched();
+    }
+    return best;
+  }
+
+  private SolveResult solveOn(SolverNode node, String inputMessage, Map<String, String> configs) {
+    HttpResponse<String> response;
+    try {
+      String body = "{\"config\":" + Helper.getObjectMapper().writeValueAsString(configs)
+          + ",\"problemStatement\":" + inputMessage + "}";
+      HttpRequest request = HttpRequest.newBuilder()
+          .uri(node.getBaseUri().resolve("/solve"))
+          .timeout(solveTimeout)
+          .header("Content-Type", "application/json")
+          .POST(HttpRequest.BodyPublishers.ofString(body))
+          .build();
+      response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    } catch (HttpTimeoutException e) {
+      if (e instanceof HttpConnectTimeoutException) {
+        throw new NodeFailureException(e.toString());
+      }
+      // The node got the statement and may still be solving it, so sending it elsewhere would duplicate the work
+      throw new RuntimeException("Solver node " + node + " did not answer within " + solveTimeout.getSeconds() + " s");
+    } catch (IOException e) {
+      throw new NodeFailureException(e.toString());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for solver node " + node, e);
+    }
+
+    if (response.statusCode() >= 400 && response.statusCode() < 500) {
+      // The planner or the request itself failed (SC_SOLVE_FAILED, a bad request); another node would fail the same way
+      throw new RuntimeException("Solver node " + node + ": " + readError(response.body()));
+    }
+    if (response.statusCode() != 200) {
+      throw new NodeFailureException("HTTP " + response.statusCode());
+    }
+    return new SolveResult(response.body(), readMemoryUsage(response));
+  }
+
+  private static SolveMemoryUsage readMemoryUsage(HttpResponse<String> response) {
+    OptionalLong peakHeapDelta = response.headers().firstValueAsLong(SolverNodeHandler.PEAK_HEAP_DELTA_HEADER);
+    if (peakHeapDelta.isEmpty()) {
+      return null;
+    }
+    long allocated = response.headers().firstValueAsLong(SolverNodeHandler.ALLOCATED_BYTES_HEADER).orElse(-1);
+    return new SolveMemoryUsage(allocated, peakHeapDelta.getAsLong());
+  }
+
+  private static String readError(String body) {
+    try {
+      return Helper.getObjectMapper().readTree(body).path("error").asText(body);
+    } catch (IOException e) {
+      return body;
+    }
+  }
+
+  private void checkHealth() {
+    for (SolverNode node : nodes) {
+      try {
+        HttpRequest request = HttpRequest.newBuilder()
+            .uri(node.getBaseUri().resolve("/health"))
+            .timeout(Duration.ofSeconds(5))
+            .GET()
+            .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+          throw new IOException("HTTP " + response.statusCode());
+        }
+        JsonNode health = Helper.getObjectMapper().readTree(response.body());
+        if (!node.isHealthy()) {
+          System.out.println("Solver node " + node + " is up");
+        }
+        node.markHealthy(health.path("queueDepth").asInt(0));
+      } catch (Exception e) {
+        if (e instanceof InterruptedException) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        if (node.isHealthy() || node.getLastHealthCheckMillis() == 0) {
+          System.err.println("Solver node " + node + " is down: " + e);
+        }
+        node.markDown();
+      }
+    }
+  }
+
+  /**
+   * The node could not run the solve; it is safe to send it to another node.
+   */
+  private static class NodeFailureException extends RuntimeException {
+    NodeFailureException(String message) {
+      super(message);
+    }
+  }
+}
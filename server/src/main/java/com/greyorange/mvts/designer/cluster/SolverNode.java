@@ -0,0 +1,68 @@
+package com.greyorange.mvts.designer.cluster;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A remote solver node as seen by the coordinator.
+ */
+public class SolverNode {
+
+  private final URI baseUri;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private volatile boolean healthy;
+  private volatile int reportedQueueDepth;
+  private volatile long lastHealthCheckMillis;
+
+  public SolverNode(URI baseUri) {
+    this.baseUri = baseUri;
+  }
+
+  public URI getBaseUri() {
+    return baseUri;
+  }
+
+  public boolean isHealthy() {
+    return healthy;
+  }
+
+  /**
+   * Load used to pick a node: the solves this coordinator has in flight on it, or the queue depth the node
+   * last reported if that is higher, because other coordinators may be sending it work too.
+   */
+  public int getLoad() {
+    return Math.max(inFlight.get(), reportedQueueDepth);
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  public long getLastHealthCheckMillis() {
+    return lastHealthCheckMillis;
+  }
+
+  void markHealthy(int queueDepth) {
+    healthy = true;
+    reportedQueueDepth = queueDepth;
+    lastHealthCheckMillis = System.currentTimeMillis();
+  }
+
+  void markDown() {
+    healthy = false;
+    lastHealthCheckMillis = System.currentTimeMillis();
+  }
+
+  void dispatched() {
+    inFlight.incrementAndGet();
+  }
+
+  void finished() {
+    inFlight.decrementAndGet();
+  }
+
+  @Override
+  public String toString() {
+    return baseUri.toString();
+  }
+}
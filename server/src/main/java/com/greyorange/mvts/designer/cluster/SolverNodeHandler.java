@@ -0,0 +1,101 @@
+package com.greyorange.mvts.designer.cluster;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greyorange.multifleetplanner.helpers.Helper;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * HTTP endpoint of a solver node.
+ *
+ * POST /solve takes {"config": {flattened overrides}, "problemStatement": {...}} and returns the planner's
+ * result JSON. GET /health returns the node's queue depth. A solve the planner itself rejects, or that runs
+ * the node out of memory, is answered with {@link #SC_SOLVE_FAILED} so the coordinator does not retry it elsewhere. The memory the solve took
+ * is reported in the {@link #ALLOCATED_BYTES_HEADER} and {@link #PEAK_HEAP_DELTA_HEADER} headers.
+ */
+public class SolverNodeHandler extends AbstractHandler {
+
+  public static final int SC_SOLVE_FAILED = 422;
+  public static final String ALLOCATED_BYTES_HEADER = "X-Solve-Allocated-Bytes";
+  public static final String PEAK_HEAP_DELTA_HEADER = "X-Solve-Peak-Heap-Delta-Bytes";
+
+  @Override
+  public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+      throws IOException, ServletException {
+    response.setContentType("application/json");
+
+    if ("GET".equalsIgnoreCase(request.getMethod()) && target.equals("/health")) {
+      response.setStatus(HttpServletResponse.SC_OK);
+      response.getWriter().write("{\"status\":\"UP\",\"queueDepth\":" + LocalSolver.getQueueDepth() + "}");
+    } else if ("POST".equalsIgnoreCase(request.getMethod()) && target.equals("/solve")) {
+      handleSolve(request, response);
+    } else {
+      response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+    }
+    baseRequest.setHandled(true);
+  }
+
+  private void handleSolve(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    ObjectMapper mapper = Helper.getObjectMapper();
+    Map<String, String> configs = new HashMap<>();
+    StringWriter problemStatement = new StringWriter();
+
+    try (JsonParser parser = mapper.getFactory().createParser(request.getReader())) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("Request body must be a JSON object");
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        parser.nextToken();
+        if ("config".equals(field)) {
+          configs = mapper.readValue(parser, new TypeReference<Map<String, String>>() {});
+        } else if ("problemStatement".equals(field)) {
+          try (JsonGenerator generator = mapper.getFactory().createGenerator(problemStatement)) {
+            generator.copyCurrentStructure(parser);
+          }
+        } else {
+          parser.skipChildren();
+        }
+      }
+    } catch (IOException e) {
+      response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+      response.getWriter().write(errorBody("Invalid solve request: " + e.getMessage()));
+      return;
+    }
+
+    SolveResult result;
+    try {
+      result = LocalSolver.solve(problemStatement.toString(), configs);
+    } catch (RuntimeException e) {
+      response.setStatus(SC_SOLVE_FAILED);
+      response.getWriter().write(errorBody(e.getMessage()));
+      return;
+    } catch (OutOfMemoryError e) {
+      // Every node has a heap of about the same size, so the statement would run them all out of memory
+      System.err.println("Solve ran out of memory: " + e.getMessage());
+      response.setStatus(SC_SOLVE_FAILED);
+      response.getWriter().write(errorBody("Solver node ran out of memory: " + e.getMessage()));
+      return;
+    }
+    response.setStatus(HttpServletResponse.SC_OK);
+    response.setHeader(ALLOCATED_BYTES_HEADER, String.valueOf(result.getMemoryUsage().getAllocatedBytes()));
+    response.setHeader(PEAK_HEAP_DELTA_HEADER, String.valueOf(result.getMemoryUsage().getPeakHeapDeltaBytes()));
+    response.getWriter().write(result.getResult());
+  }
+
+  private static String errorBody(String message) throws IOException {
+    return Helper.getObjectMapper().createObjectNode().put("error", message).toString();
+  }
+}
@@ -0,0 +1,48 @@
+package com.greyorange.mvts.designer.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Turns a config object as sent by the UI into the flattened, dot-notated map the planner overlays expect.
+ */
+public final class ConfigFlattener {
+
+  private ConfigFlattener() {
+  }
+
+  /**
+   * Flattens a config object; nested objects become dotted keys and arrays indexed keys.
+   *
+   * @param configNode The config, may be null.
+   * @return The flattened config, empty if there is none.
+   */
+  public static Map<String, String> flatten(JsonNode configNode) {
+    Map<String, String> configs = new HashMap<>();
+    if (configNode != null && !configNode.isNull()) {
+      flattenJson(configNode, "", configs);
+    }
+    return configs;
+  }
+
+  /**
+   * Recursively flattens a JsonNode into a dot-notated map.
+   */
+  private static void flattenJson(JsonNode node, String prefix, Map<String, String> result) {
+    if (node.isObject()) {
+      node.fieldNames().forEachRemaining(fieldName -> {
+        String newPrefix = prefix.isEmpty() ? fieldName : prefix + "." + fieldName;
+        flattenJson(node.get(fieldName), newPrefix, result);
+      });
+    } else if (node.isArray()) {
+      for (int i = 0; i < node.size(); i++) {
+        String newPrefix = prefix + "[" + i + "]";
+        flattenJson(node.get(i), newPrefix, result);
+      }
+    } else { // Value node
+      result.put(prefix, node.asText());
+    }
+  }
+}
@@ -0,0 +1,167 @@
+package com.greyorange.mvts.designer.config;
+
+import com.greyorange.multifleetplanner.core.Config;
+import com.greyorange.multifleetplanner.helpers.Helper;
+import com.greyorange.mvts.designer.properties.ApplicationProperties;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Switches the planner between memoized {@link ConfigSnapshot}s.
+ *
+ * The planner modules read their settings from static ApplicationProperties enums, so a
+ * snapshot only takes effect once it is copied into the global Config and the five enums are
+ * reloaded. That work is done only when the requested snapshot is not the active one; repeated
+ * solves with the same config reuse the loaded state as is. After each solve
+ * {@link #verifyActive()} compares the global properties and the enums' fields with what was
+ * loaded, and if the solve changed either, the next activation reloads.
+ */
+public class ConfigOverlayManager {
+
+  private static final List<Class<? extends Enum<?>>> PLANNER_PROPERTIES = List.of(
+      com.greyorange.multifleetplanner.core.ApplicationProperties.class,
+      com.greyorange.mvts.core.ApplicationProperties.class,
+      com.greyorange.taskscheduler.core.ApplicationProperties.class,
+      com.greyorange.subtaskplanner.core.ApplicationProperties.class,
+      com.greyorange.multifleetplanner_common.core.ApplicationProperties.class);
+
+  private static ConfigOverlayManager instance;
+
+  private final Map<String, ConfigSnapshot> snapshots;
+  private Map<String, String> defaults;
+  private ConfigSnapshot active;
+  private Properties activeTarget;
+  private Map<String, String> activeEnumState;
+
+  private ConfigOverlayManager() {
+    int maxSnapshots = ApplicationProperties.CONFIG_SNAPSHOT_CACHE_SIZE.getIntValue();
+    snapshots = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, ConfigSnapshot> eldest) {
+        return size() > maxSnapshots;
+      }
+    };
+  }
+
+  public static ConfigOverlayManager getInstance() {
+    if (instance == null) {
+      synchronized (ConfigOverlayManager.class) {
+        if (instance == null) {
+          instance = new ConfigOverlayManager();
+        }
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Makes the snapshot for the given flattened config map the active planner configuration.
+   *
+   * @param overlay The flattened config overrides, may be empty.
+   * @return The snapshot now in effect.
+   */
+  public synchronized ConfigSnapshot activate(Map<String, String> overlay) {
+    String key = ConfigSnapshot.keyOf(overlay);
+    ConfigSnapshot snapshot = snapshots.get(key);
+    if (snapshot == null) {
+      snapshot = new ConfigSnapshot(key, getDefaults(), overlay);
+      snapshots.put(key, snapshot);
+    }
+
+    if (snapshot != active || Config.getInstance().getProperties() != activeTarget) {
+      install(snapshot);
+    }
+    return snapshot;
+  }
+
+  /**
+   * Checks that neither the global properties nor the planner's enums changed since the active
+   * snapshot was loaded, and forgets it otherwise so the next activation reloads. Called after every solve.
+   */
+  public synchronized void verifyActive() {
+    if (active == null) {
+      return;
+    }
+    Properties live = Config.getInstance().getProperties();
+    if (live != activeTarget || !active.matches(live) || activeEnumState == null
+        || !activeEnumState.equals(readEnumState())) {
+      active = null;
+      activeTarget = null;
+      activeEnumState = null;
+    }
+  }
+
+  private void install(ConfigSnapshot snapshot) {
+    Properties properties = Config.getInstance().getProperties();
+    snapshot.copyInto(properties);
+    loadApplicationProperties(properties);
+    active = snapshot;
+    activeTarget = properties;
+    activeEnumState = readEnumState();
+  }
+
+  /**
+   * Captures the planner's default properties once, as loaded from a fresh Config in test mode.
+   */
+  private Map<String, String> getDefaults() {
+    if (defaults == null) {
+      Config.reset();
+      Properties properties = Config.getInstance().getProperties();
+      loadApplicationProperties(properties);
+      Helper.updateProperties("TEST_MODE", "true");
+
+      Map<String, String> captured = new HashMap<>();
+      for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+        captured.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+      }
+      defaults = captured;
+      active = null;
+      activeTarget = null;
+      activeEnumState = null;
+    }
+    return defaults;
+  }
+
+  /**
+   * Reads the instance fields of every constant of the planner's ApplicationProperties enums, as
+   * "Enum.CONSTANT.field" to the value's string form. Returns null if a field cannot be read, in which
+   * case the loaded state is never trusted and every solve reloads.
+   */
+  private static Map<String, String> readEnumState() {
+    Map<String, String> state = new HashMap<>();
+    try {
+      for (Class<? extends Enum<?>> type : PLANNER_PROPERTIES) {
+        for (Enum<?> constant : type.getEnumConstants()) {
+          for (Field field : type.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+              continue;
+            }
+            field.setAccessible(true);
+            Object value = field.get(constant);
+            state.put(type.getName() + "." + constant.name() + "." + field.getName(),
+                value instanceof Object[] ? Arrays.deepToString((Object[]) value) : String.valueOf(value));
+          }
+        }
+      }
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      System.err.println("Cannot read the planner's properties, reloading them before every solve: " + e.getMessage());
+      return null;
+    }
+    return state;
+  }
+
+  private static void loadApplicationProperties(Properties properties) {
+    com.greyorange.multifleetplanner.core.ApplicationProperties.load(properties);
+    com.greyorange.mvts.core.ApplicationProperties.load(properties);
+    com.greyorange.taskscheduler.core.ApplicationProperties.load(properties);
+    com.greyorange.subtaskplanner.core.ApplicationProperties.load(properties);
+    com.greyorange.multifleetplanner_common.core.ApplicationProperties.load(properties);
+  }
+}
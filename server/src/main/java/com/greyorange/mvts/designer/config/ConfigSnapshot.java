@@ -0,0 +1,78 @@
+package com.greyorange.mvts.designer.config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Immutable planner configuration: the default properties with one flattened config map laid over them.
+ * Snapshots are identified by a hash of the overlay, so equal configs map to the same snapshot.
+ */
+public final class ConfigSnapshot {
+
+  private final String key;
+  private final Map<String, String> properties;
+
+  ConfigSnapshot(String key, Map<String, String> defaults, Map<String, String> overlay) {
+    Map<String, String> merged = new HashMap<>(defaults);
+    merged.putAll(overlay);
+    this.key = key;
+    this.properties = Collections.unmodifiableMap(merged);
+  }
+
+  /**
+   * Returns the hash key of a flattened config map. Independent of the map's iteration order.
+   */
+  public static String keyOf(Map<String, String> overlay) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      for (Map.Entry<String, String> entry : new TreeMap<>(overlay).entrySet()) {
+        digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(String.valueOf(entry.getValue()).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+      }
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public Map<String, String> getProperties() {
+    return properties;
+  }
+
+  /**
+   * Copies this snapshot into the given properties, replacing whatever they held.
+   */
+  void copyInto(Properties target) {
+    target.clear();
+    target.putAll(properties);
+  }
+
+  /**
+   * Returns true if the given properties still hold exactly this snapshot.
+   */
+  boolean matches(Properties live) {
+    if (live.size() != properties.size()) {
+      return false;
+    }
+    for (Map.Entry<Object, Object> entry : live.entrySet()) {
+      if (!Objects.equals(properties.get(String.valueOf(entry.getKey())), entry.getValue())) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,51 @@
+package com.greyorange.mvts.designer.ingest;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reader that fails with {@link MessageTooLargeException} once more than a fixed number of characters were read.
+ */
+class LimitedReader extends FilterReader {
+
+  private final long limit;
+  private long count;
+
+  LimitedReader(Reader in, long limit) {
+    super(in);
+    this.limit = limit;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int c = super.read();
+    if (c != -1) {
+      count(1);
+    }
+    return c;
+  }
+
+  @Override
+  public int read(char[] buffer, int offset, int length) throws IOException {
+    int read = super.read(buffer, offset, length);
+    if (read > 0) {
+      count(read);
+    }
+    return read;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long skipped = super.skip(n);
+    count(skipped);
+    return skipped;
+  }
+
+  private void count(long read) throws MessageTooLargeException {
+    count += read;
+    if (count > limit) {
+      throw new MessageTooLargeException(limit);
+    }
+  }
+}
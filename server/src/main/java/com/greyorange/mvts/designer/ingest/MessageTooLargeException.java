@@ -0,0 +1,13 @@
+package com.greyorange.mvts.designer.ingest;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an incoming WebSocket message exceeds WS_MAX_MESSAGE_SIZE_MB.
+ */
+public class MessageTooLargeException extends IOException {
+
+  public MessageTooLargeException(long limitChars) {
+    super("Message exceeds the limit of " + limitChars + " characters");
+  }
+}
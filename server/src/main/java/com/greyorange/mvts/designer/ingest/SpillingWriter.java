@@ -0,0 +1,78 @@
+package com.greyorange.mvts.designer.ingest;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writer that buffers in memory up to a threshold and then moves everything to a temporary file,
+ * so the heap used per upload stays bounded by the threshold whatever the payload size.
+ */
+class SpillingWriter extends Writer {
+
+  private final long threshold;
+  private final Path spillDirectory;
+  private StringBuilder memory = new StringBuilder();
+  private Path file;
+  private Writer fileWriter;
+  private long length;
+
+  SpillingWriter(long threshold, Path spillDirectory) {
+    this.threshold = threshold;
+    this.spillDirectory = spillDirectory;
+  }
+
+  @Override
+  public void write(char[] buffer, int offset, int count) throws IOException {
+    length += count;
+    if (fileWriter == null && memory.length() + count > threshold) {
+      spill();
+    }
+    if (fileWriter != null) {
+      fileWriter.write(buffer, offset, count);
+    } else {
+      memory.append(buffer, offset, count);
+    }
+  }
+
+  private void spill() throws IOException {
+    Files.createDirectories(spillDirectory);
+    file = Files.createTempFile(spillDirectory, "statement-", ".json");
+    fileWriter = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    fileWriter.write(memory.toString());
+    memory = null;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (fileWriter != null) {
+      fileWriter.flush();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (fileWriter != null) {
+      fileWriter.close();
+    }
+  }
+
+  /**
+   * Returns the written content as a payload. Must be called after {@link #close()}.
+   */
+  StatementPayload toPayload() {
+    return file != null ? StatementPayload.ofFile(file, length) : StatementPayload.of(memory.toString());
+  }
+
+  /**
+   * Removes the spill file of a payload that will not be used.
+   */
+  void discard() throws IOException {
+    close();
+    if (file != null) {
+      Files.deleteIfExists(file);
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package com.greyorange.mvts.designer.ingest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A problem statement as received from a client, held in memory when small and in a
+ * temporary file once it grew past WS_SPILL_THRESHOLD_MB.
+ *
+ * Payloads are shared between the client's session and queued solves, so they are
+ * reference counted: every holder calls {@link #retain()} and {@link #release()}, and
+ * the spill file is deleted when the last holder releases it.
+ */
+public class StatementPayload {
+
+  private final String text;
+  private final Path file;
+  private final long length;
+  private final AtomicInteger references = new AtomicInteger(1);
+
+  private StatementPayload(String text, Path file, long length) {
+    this.text = text;
+    this.file = file;
+    this.length = length;
+  }
+
+  public static StatementPayload of(String json) {
+    return new StatementPayload(json, null, json.length());
+  }
+
+  static StatementPayload ofFile(Path file, long length) {
+    return new StatementPayload(null, file, length);
+  }
+
+  public boolean isSpilled() {
+    return file != null;
+  }
+
+  /**
+   * Length of the statement JSON in characters.
+   */
+  public long length() {
+    return length;
+  }
+
+  public Reader openReader() throws IOException {
+    if (file != null) {
+      return Files.newBufferedReader(file, StandardCharsets.UTF_8);
+    }
+    return new StringReader(text);
+  }
+
+  /**
+   * Returns the whole statement as a string. For spilled payloads this reads the file,
+   * so it should only be called right before the statement is needed in full.
+   */
+  public String readString() throws IOException {
+    if (file != null) {
+      try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+        StringBuilder builder = new StringBuilder((int) Math.min(length, Integer.MAX_VALUE - 8));
+        char[] buffer = new char[64 * 1024];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+          builder.append(buffer, 0, read);
+        }
+        return builder.toString();
+      }
+    }
+    return text;
+  }
+
+  public StatementPayload retain() {
+    references.incrementAndGet();
+    return this;
+  }
+
+  public void release() {
+    if (references.decrementAndGet() == 0 && file != null) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        System.err.println("Failed to delete spilled statement " + file + ": " + e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package com.greyorange.mvts.designer.ingest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.greyorange.multifleetplanner.helpers.Helper;
+import com.greyorange.mvts.designer.pojo.WSData;
+import com.greyorange.mvts.designer.pojo.WSEvent;
+import com.greyorange.mvts.designer.properties.ApplicationProperties;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Reads a WebSocket message from the frame stream with a Jackson streaming parser.
+ *
+ * The envelope and the small data fields are read into a {@link WSData} as usual, but
+ * data.problemStatement is copied token by token into a {@link StatementPayload} that
+ * spills to disk past WS_SPILL_THRESHOLD_MB. Neither the raw message nor a tree of the
+ * statement is ever held in memory, and messages over WS_MAX_MESSAGE_SIZE_MB are rejected
+ * while they are still being received.
+ */
+public final class StreamingMessageReader {
+
+  private static final long MEGABYTE = 1024L * 1024L;
+
+  private StreamingMessageReader() {
+  }
+
+  public static long getMaxMessageChars() {
+    return ApplicationProperties.WS_MAX_MESSAGE_SIZE_MB.getIntValue() * MEGABYTE;
+  }
+
+  public static WSData read(Reader reader) throws IOException {
+    ObjectMapper mapper = Helper.getObjectMapper();
+    JsonFactory factory = mapper.getFactory();
+    WSData data = new WSData();
+
+    try (JsonParser parser = factory.createParser(new LimitedReader(reader, getMaxMessageChars()))) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("Message must be a JSON object");
+      }
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        parser.nextToken();
+        switch (field) {
+          case "type":
+            data.setEvent(WSEvent.valueOf(parser.getValueAsString()));
+            break;
+          case "requestId":
+            data.setRequestId(parser.getValueAsString());
+            break;
+          case "data":
+            readData(parser, mapper, data);
+            break;
+          default:
+            parser.skipChildren();
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      if (data.getProblemStatement() != null) {
+        data.getProblemStatement().release();
+      }
+      throw e;
+    }
+
+    if (data.getEvent() == null) {
+      throw new IOException("Message has no type");
+    }
+    if (data.getDataNode() == null) {
+      data.setDataNode(mapper.createObjectNode());
+    }
+    return data;
+  }
+
+  private static void readData(JsonParser parser, ObjectMapper mapper, WSData data) throws IOException {
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      data.setDataNode(mapper.readTree(parser));
+      return;
+    }
+
+    ObjectNode dataNode = mapper.createObjectNode();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+      if ("problemStatement".equals(field) && token == JsonToken.START_OBJECT) {
+        data.setProblemStatement(copyToPayload(parser, mapper.getFactory()));
+      } else {
+        JsonNode value = mapper.readTree(parser);
+        dataNode.set(field, value);
+      }
+    }
+    data.setDataNode(dataNode);
+  }
+
+  private static StatementPayload copyToPayload(JsonParser parser, JsonFactory factory) throws IOException {
+    long threshold = ApplicationProperties.WS_SPILL_THRESHOLD_MB.getIntValue() * MEGABYTE;
+    Path spillDirectory = Paths.get(ApplicationProperties.WS_SPILL_DIR.getValue());
+
+    SpillingWriter writer = new SpillingWriter(threshold, spillDirectory);
+    try (JsonGenerator generator = factory.createGenerator(writer)) {
+      generator.copyCurrentStructure(parser);
+    } catch (IOException | RuntimeException e) {
+      writer.discard();
+      throw e;
+    }
+    writer.close();
+    return writer.toPayload();
+  }
+}
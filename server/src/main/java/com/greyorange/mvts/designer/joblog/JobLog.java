@@ -0,0 +1,368 @@
+package com.greyorange.mvts.designer.joblog;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The log events of one solve, kept as NDJSON in a gzip file of its own.
+ *
+ * Events are buffered and written as one gzip member per JOB_LOG_SEGMENT_EVENTS events. Each
+ * member is a complete gzip stream, so finished segments can be read while the solve is still
+ * logging, and the per-level counts kept for each segment let a page skip whole segments
+ * without decompressing them.
+ */
+public class JobLog {
+
+  static final String[] LEVELS = {"TRACE", "DEBUG", "INFO", "WARN", "ERROR"};
+  private static final int INFO = 2;
+
+  private final String jobId;
+  private final Path file;
+  private final int segmentEvents;
+  private final JsonFactory factory;
+  private final long createdMillis = System.currentTimeMillis();
+
+  private final List<Segment> segments = new ArrayList<>();
+  private List<String> pendingLines = new ArrayList<>();
+  private int[] pendingCounts = new int[LEVELS.length];
+  private long committedBytes;
+  private int eventCount;
+  private boolean finished;
+  private boolean deleted;
+
+  JobLog(String jobId, Path file, int segmentEvents, JsonFactory factory) {
+    this.jobId = jobId;
+    this.file = file;
+    this.segmentEvents = segmentEvents;
+    this.factory = factory;
+  }
+
+  public String getJobId() {
+    return jobId;
+  }
+
+  public long getCreatedMillis() {
+    return createdMillis;
+  }
+
+  public synchronized boolean isFinished() {
+    return finished;
+  }
+
+  public synchronized int getEventCount() {
+    return eventCount;
+  }
+
+  /**
+   * Records one event.
+   *
+   * @return The sequence number of the event, or -1 if the log is already finished.
+   */
+  public synchronized int append(long timestamp, String level, String logger, String thread, String message) {
+    if (finished) {
+      return -1;
+    }
+    int seq = eventCount++;
+    int levelIndex = levelIndex(level);
+    StringWriter line = new StringWriter(message.length() + 96);
+    try (JsonGenerator generator = factory.createGenerator(line)) {
+      generator.writeStartObject();
+      generator.writeNumberField("seq", seq);
+      generator.writeNumberField("timestamp", timestamp);
+      generator.writeStringField("level", LEVELS[levelIndex]);
+      generator.writeStringField("logger", logger);
+      generator.writeStringField("thread", thread);
+      generator.writeStringField("message", message);
+      generator.writeEndObject();
+    } catch (IOException e) {
+      // Only thrown by the writer, which is in memory
+      throw new IllegalStateException(e);
+    }
+    pendingLines.add(line.toString());
+    pendingCounts[levelIndex]++;
+    if (pendingLines.size() >= segmentEvents) {
+      writeSegment();
+    }
+    return seq;
+  }
+
+  /**
+   * Writes the remaining events and stops accepting new ones.
+   */
+  public synchronized void finish() {
+    if (finished) {
+      return;
+    }
+    writeSegment();
+    finished = true;
+  }
+
+  synchronized void delete() {
+    finished = true;
+    deleted = true;
+    pendingLines = new ArrayList<>();
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      System.err.println("Error deleting job log " + file + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Receives the events of a page, as NDJSON lines.
+   */
+  public interface LineConsumer {
+    void accept(String line) throws IOException;
+  }
+
+  /**
+   * Reads a page of events at or above a level.
+   *
+   * @param offset The number of matching events to skip.
+   * @param limit The maximum number of events to return.
+   * @param minLevel The lowest level returned, e.g. "WARN" for warnings and errors.
+   * @param consumer Receives the matching events in order.
+   * @return The total number of events at or above the level.
+   */
+  public int read(int offset, int limit, String minLevel, LineConsumer consumer) throws IOException {
+    int min = levelIndex(minLevel);
+    List<Segment> segmentsSnapshot;
+    List<String> pendingSnapshot;
+    int pendingMatches;
+    long readableBytes;
+    synchronized (this) {
+      if (deleted) {
+        return 0;
+      }
+      segmentsSnapshot = new ArrayList<>(segments);
+      pendingSnapshot = new ArrayList<>(pendingLines);
+      pendingMatches = countFrom(pendingCounts, min);
+      readableBytes = committedBytes;
+    }
+
+    int total = pendingMatches;
+    for (Segment segment : segmentsSnapshot) {
+      total += countFrom(segment.levelCounts, min);
+    }
+
+    int skip = offset;
+    int remaining = limit;
+    for (Segment segment : segmentsSnapshot) {
+      if (remaining == 0) {
+        break;
+      }
+      int matches = countFrom(segment.levelCounts, min);
+      if (skip >= matches) {
+        skip -= matches;
+        continue;
+      }
+      if (segment.startByte + segment.lengthBytes > readableBytes) {
+        break;
+      }
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        channel.position(segment.startByte);
+        InputStream member = new BoundedInputStream(Channels.newInputStream(channel), segment.lengthBytes);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(member), StandardCharsets.UTF_8));
+        String line;
+        while (remaining > 0 && (line = reader.readLine()) != null) {
+          if (levelIndex(levelOf(line)) < min) {
+            continue;
+          }
+          if (skip > 0) {
+            skip--;
+            continue;
+          }
+          consumer.accept(line);
+          remaining--;
+        }
+      }
+    }
+
+    for (String line : pendingSnapshot) {
+      if (remaining == 0) {
+        break;
+      }
+      if (levelIndex(levelOf(line)) < min) {
+        continue;
+      }
+      if (skip > 0) {
+        skip--;
+        continue;
+      }
+      consumer.accept(line);
+      remaining--;
+    }
+    return total;
+  }
+
+  private void writeSegment() {
+    if (pendingLines.isEmpty() || deleted) {
+      return;
+    }
+    long start = committedBytes;
+    try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      CountingOutputStream counted = new CountingOutputStream(new BufferedOutputStream(out));
+      Writer writer = new OutputStreamWriter(new GZIPOutputStream(counted), StandardCharsets.UTF_8);
+      for (String line : pendingLines) {
+        writer.write(line);
+        writer.write('\n');
+      }
+      writer.close();
+      committedBytes += counted.count;
+      segments.add(new Segment(start, counted.count, pendingCounts));
+    } catch (IOException e) {
+      // Losing the on-disk copy must not fail the solve; the events stay in the live stream
+      System.err.println("Error writing job log " + file + ": " + e.getMessage());
+      truncateTo(start);
+    }
+    pendingLines = new ArrayList<>();
+    pendingCounts = new int[LEVELS.length];
+  }
+
+  private void truncateTo(long length) {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(length);
+    } catch (IOException e) {
+      System.err.println("Error truncating job log " + file + ": " + e.getMessage());
+    }
+  }
+
+  private static int countFrom(int[] counts, int min) {
+    int sum = 0;
+    for (int i = min; i < counts.length; i++) {
+      sum += counts[i];
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the index of a level in {@link #LEVELS}, treating unknown levels as INFO.
+   */
+  static int levelIndex(String level) {
+    if (level != null) {
+      for (int i = 0; i < LEVELS.length; i++) {
+        if (LEVELS[i].equalsIgnoreCase(level)) {
+          return i;
+        }
+      }
+    }
+    return INFO;
+  }
+
+  /**
+   * Returns true if the given level is one the events can be filtered by.
+   */
+  public static boolean isLevel(String level) {
+    for (String known : LEVELS) {
+      if (known.equalsIgnoreCase(level)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Reads the level back from a line written by {@link #append}, where it is always the third field.
+   */
+  private static String levelOf(String line) {
+    int start = line.indexOf("\"level\":\"");
+    if (start < 0) {
+      return null;
+    }
+    start += 9;
+    int end = line.indexOf('"', start);
+    return end < 0 ? null : line.substring(start, end);
+  }
+
+  private static final class Segment {
+    final long startByte;
+    final long lengthBytes;
+    final int[] levelCounts;
+
+    Segment(long startByte, long lengthBytes, int[] levelCounts) {
+      this.startByte = startByte;
+      this.lengthBytes = lengthBytes;
+      this.levelCounts = levelCounts;
+    }
+  }
+
+  private static final class CountingOutputStream extends FilterOutputStream {
+    long count;
+
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+  }
+
+  private static final class BoundedInputStream extends FilterInputStream {
+    private long remaining;
+
+    BoundedInputStream(InputStream in, long limit) {
+      super(in);
+      this.remaining = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int b = in.read();
+      if (b >= 0) {
+        remaining--;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (remaining <= 0) {
+        return -1;
+      }
+      int n = in.read(b, off, (int) Math.min(len, remaining));
+      if (n > 0) {
+        remaining -= n;
+      }
+      return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return (int) Math.min(in.available(), remaining);
+    }
+  }
+}
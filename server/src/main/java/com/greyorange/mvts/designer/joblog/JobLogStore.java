@@ -0,0 +1,86 @@
+package com.greyorange.mvts.designer.joblog;
+
+import com.greyorange.multifleetplanner.helpers.Helper;
+import com.greyorange.mvts.designer.properties.ApplicationProperties;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the captured logs of the last JOB_LOG_MAX_JOBS solves, one compressed file per job
+ * under JOB_LOG_DIR. Files left behind by a previous run are removed on startup.
+ */
+public class JobLogStore {
+
+  private static final String FILE_SUFFIX = ".ndjson.gz";
+
+  private static JobLogStore instance;
+
+  private final Path directory;
+  private final int maxJobs;
+  private final int segmentEvents;
+  private final AtomicLong sequence = new AtomicLong();
+  private final LinkedHashMap<String, JobLog> jobs;
+
+  private JobLogStore() {
+    directory = Paths.get(ApplicationProperties.JOB_LOG_DIR.getValue());
+    maxJobs = ApplicationProperties.JOB_LOG_MAX_JOBS.getIntValue();
+    segmentEvents = Math.max(1, ApplicationProperties.JOB_LOG_SEGMENT_EVENTS.getIntValue());
+    jobs = new LinkedHashMap<>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, JobLog> eldest) {
+        if (size() > maxJobs) {
+          eldest.getValue().delete();
+          return true;
+        }
+        return false;
+      }
+    };
+
+    try {
+      Files.createDirectories(directory);
+      try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+        for (Path file : stale) {
+          Files.deleteIfExists(file);
+        }
+      }
+    } catch (IOException e) {
+      System.err.println("Error preparing job log directory " + directory + ": " + e.getMessage());
+    }
+  }
+
+  public static JobLogStore getInstance() {
+    if (instance == null) {
+      synchronized (JobLogStore.class) {
+        if (instance == null) {
+          instance = new JobLogStore();
+        }
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Starts the log of a new job, evicting the oldest job if the store is full.
+   */
+  public synchronized JobLog create() {
+    String jobId = "job_" + System.currentTimeMillis() + "_" + sequence.incrementAndGet();
+    JobLog jobLog = new JobLog(jobId, directory.resolve(jobId + FILE_SUFFIX), segmentEvents,
+        Helper.getObjectMapper().getFactory());
+    jobs.put(jobId, jobLog);
+    return jobLog;
+  }
+
+  /**
+   * Returns the log of the given job, or null if it is unknown or has been evicted.
+   */
+  public synchronized JobLog get(String jobId) {
+    return jobs.get(jobId);
+  }
+}
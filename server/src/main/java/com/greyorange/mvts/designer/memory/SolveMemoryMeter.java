@@ -0,0 +1,107 @@
+package com.greyorange.mvts.designer.memory;
+
+import com.sun.management.ThreadMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the memory a solve takes on the current thread.
+ *
+ * Allocated bytes come from the thread's allocation counter. The peak heap delta is how far the old
+ * generation grew during the solve: the peak usage of the old (tenured) heap pools since the solve started,
+ * minus their usage at the start. The young pools are left out, as eden fills to its capacity before every
+ * young collection whatever the statement, so their peak reflects the young generation's size rather than
+ * the solve. Data that dies young never reaches the old generation, so the figure approximates the part of
+ * the solve's working set that lives long enough to be promoted, plus old garbage not yet collected. Live
+ * data still in the young pools when the solve ends is not counted, and small solves may measure 0. Collectors with a single heap pool report that pool. The peaks are reset when
+ * measuring starts, so meters must not overlap; {@link com.greyorange.mvts.designer.cluster.LocalSolver}
+ * runs one solve at a time, which guarantees that. Work the planner hands to threads of its own is not
+ * counted as allocated.
+ */
+public class SolveMemoryMeter {
+
+  private static final ThreadMXBean threadBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+  private static final List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+  private static final List<MemoryPoolMXBean> oldPools = new ArrayList<>();
+
+  static {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+        heapPools.add(pool);
+        if (!isYoungPool(pool.getName())) {
+          oldPools.add(pool);
+        }
+      }
+    }
+    if (threadBean.isThreadAllocatedMemorySupported() && !threadBean.isThreadAllocatedMemoryEnabled()) {
+      threadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+  }
+
+  private final long startAllocated;
+  private final long startOldUsed;
+
+  private SolveMemoryMeter() {
+    long oldUsed = 0;
+    for (MemoryPoolMXBean pool : oldPools) {
+      pool.resetPeakUsage();
+      oldUsed += pool.getUsage().getUsed();
+    }
+    startOldUsed = oldUsed;
+    startAllocated = threadBean.getCurrentThreadAllocatedBytes();
+  }
+
+  /**
+   * Starts measuring on the current thread.
+   */
+  public static SolveMemoryMeter start() {
+    return new SolveMemoryMeter();
+  }
+
+  /**
+   * Stops measuring; must be called on the thread that started the meter.
+   */
+  public SolveMemoryUsage stop() {
+    long endAllocated = threadBean.getCurrentThreadAllocatedBytes();
+    long allocated = startAllocated >= 0 && endAllocated >= 0 ? endAllocated - startAllocated : -1;
+
+    long peakOldUsed = 0;
+    for (MemoryPoolMXBean pool : oldPools) {
+      MemoryUsage peak = pool.getPeakUsage();
+      if (peak != null) {
+        peakOldUsed += peak.getUsed();
+      }
+    }
+    return new SolveMemoryUsage(allocated, Math.max(0, peakOldUsed - startOldUsed));
+  }
+
+  /**
+   * True for the eden and survivor pools of the HotSpot collectors, e.g. "G1 Eden Space", "PS Survivor Space"
+   * or "ZGC Young Generation".
+   */
+  private static boolean isYoungPool(String name) {
+    return name.contains("Eden") || name.contains("Survivor") || name.contains("Young");
+  }
+
+  /**
+   * Heap still in use after the last collection of each pool, i.e. roughly the live data.
+   * Pools that do not report collection usage count with their current usage.
+   */
+  public static long liveHeapBytes() {
+    long live = 0;
+    for (MemoryPoolMXBean pool : heapPools) {
+      MemoryUsage usage = pool.getCollectionUsage();
+      live += (usage != null ? usage : pool.getUsage()).getUsed();
+    }
+    return live;
+  }
+
+  public static long maxHeapBytes() {
+    return Runtime.getRuntime().maxMemory();
+  }
+}
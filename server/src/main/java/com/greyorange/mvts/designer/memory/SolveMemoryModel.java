@@ -0,0 +1,232 @@
+package com.greyorange.mvts.designer.memory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.greyorange.multifleetplanner.helpers.Helper;
+import com.greyorange.mvts.designer.properties.ApplicationProperties;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Predicts the peak heap a solve needs from the size of its statement, based on the last
+ * SOLVE_MEMORY_SAMPLES measured solves.
+ *
+ * The peak heap delta, the old generation's growth as {@link SolveMemoryMeter} measures it, is
+ * fitted as a straight line over the statement length in characters. On top of it comes a margin
+ * for the statement's size: the 90th percentile of how far the line under-estimated the solves of the closest sizes, so the prediction errs on the safe side without
+ * one outlier inflating it at every size. A solve that ran out of memory is not a sample: the shortest
+ * such statement is kept as a size cap instead, until a solve at least as long succeeds. The samples
+ * and the cap are kept in SOLVE_MEMORY_MODEL_FILE, so the model survives the restart that usually
+ * follows an out-of-memory solve.
+ */
+public class SolveMemoryModel {
+
+  private static final int MIN_SAMPLES = 3;
+  private static final double MARGIN_PERCENTILE = 0.9;
+  // Names what the stored peaks measure; samples stored under another measure are not loaded
+  private static final String PEAK_MEASURE = "old_generation_peak";
+
+  private static SolveMemoryModel instance;
+
+  private final Path file;
+  private final int maxSamples;
+  private final long heapBudgetBytes;
+  private final ArrayDeque<Sample> samples = new ArrayDeque<>();
+  private long outOfMemoryChars = -1;
+
+  private SolveMemoryModel() {
+    file = Paths.get(ApplicationProperties.SOLVE_MEMORY_MODEL_FILE.getValue());
+    maxSamples = Math.max(MIN_SAMPLES, ApplicationProperties.SOLVE_MEMORY_SAMPLES.getIntValue());
+    long budgetMb = ApplicationProperties.SOLVE_HEAP_BUDGET_MB.getIntValue();
+    // Without a configured budget a solve may take three quarters of the heap, and never more than all of it
+    long maxHeap = SolveMemoryMeter.maxHeapBytes();
+    heapBudgetBytes = budgetMb > 0 ? Math.min(budgetMb * 1024 * 1024, maxHeap) : maxHeap / 4 * 3;
+    load();
+  }
+
+  public static SolveMemoryModel getInstance() {
+    if (instance == null) {
+      synchronized (SolveMemoryModel.class) {
+        if (instance == null) {
+          instance = new SolveMemoryModel();
+        }
+      }
+    }
+    return instance;
+  }
+
+  public long getHeapBudgetBytes() {
+    return heapBudgetBytes;
+  }
+
+  /**
+   * Adds a measured solve to the model and saves the model.
+   *
+   * @param statementChars Length of the solved statement in characters.
+   * @param usage The figures measured for the solve.
+   */
+  public void record(long statementChars, SolveMemoryUsage usage) {
+    if (statementChars <= 0 || usage == null) {
+      return;
+    }
+    synchronized (this) {
+      samples.add(new Sample(statementChars, usage.getAllocatedBytes(), usage.getPeakHeapDeltaBytes()));
+      while (samples.size() > maxSamples) {
+        samples.poll();
+      }
+      if (outOfMemoryChars > 0 && statementChars >= outOfMemoryChars) {
+        // A statement as long solved, so the out-of-memory solve had another cause
+        outOfMemoryChars = -1;
+      }
+    }
+    save();
+  }
+
+  /**
+   * Records a solve that ran out of memory, capping the statement length admitted from now on.
+   *
+   * @param statementChars Length of the statement in characters.
+   */
+  public void recordOutOfMemory(long statementChars) {
+    if (statementChars <= 0) {
+      return;
+    }
+    synchronized (this) {
+      outOfMemoryChars = outOfMemoryChars > 0 ? Math.min(outOfMemoryChars, statementChars) : statementChars;
+    }
+    save();
+  }
+
+  /**
+   * The length of the shortest statement that ran out of memory since a statement as long last solved, or -1.
+   */
+  public synchronized long getOutOfMemoryChars() {
+    return outOfMemoryChars;
+  }
+
+  /**
+   * Predicts the peak heap delta of solving a statement of the given length.
+   *
+   * @return The predicted bytes, or -1 while fewer than three solves have been measured.
+   */
+  public synchronized long predictPeakHeapBytes(long statementChars) {
+    if (samples.size() < MIN_SAMPLES) {
+      return -1;
+    }
+
+    double meanChars = 0;
+    double meanPeak = 0;
+    for (Sample sample : samples) {
+      meanChars += sample.chars;
+      meanPeak += sample.peakHeapDelta;
+    }
+    meanChars /= samples.size();
+    meanPeak /= samples.size();
+
+    double covariance = 0;
+    double variance = 0;
+    for (Sample sample : samples) {
+      covariance += (sample.chars - meanChars) * (sample.peakHeapDelta - meanPeak);
+      variance += (sample.chars - meanChars) * (sample.chars - meanChars);
+    }
+
+    double slope;
+    double intercept;
+    if (variance > 0 && covariance > 0) {
+      slope = covariance / variance;
+      intercept = meanPeak - slope * meanChars;
+    } else {
+      // All statements had the same size, or memory did not grow with size: scale by the average bytes per char
+      slope = meanPeak / meanChars;
+      intercept = 0;
+    }
+
+    // Residuals of the solves closest in size, a quarter of the samples but at least MIN_SAMPLES
+    List<Sample> nearest = new ArrayList<>(samples);
+    nearest.sort(Comparator.comparingLong(sample -> Math.abs(sample.chars - statementChars)));
+    nearest = nearest.subList(0, Math.max(MIN_SAMPLES, nearest.size() / 4));
+    double[] residuals = new double[nearest.size()];
+    for (int i = 0; i < residuals.length; i++) {
+      residuals[i] = nearest.get(i).peakHeapDelta - (intercept + slope * nearest.get(i).chars);
+    }
+    Arrays.sort(residuals);
+    double margin = Math.max(0, residuals[(int) Math.ceil(MARGIN_PERCENTILE * residuals.length) - 1]);
+    return Math.max(0, Math.round(intercept + slope * statementChars + margin));
+  }
+
+  private void load() {
+    if (!Files.isRegularFile(file)) {
+      return;
+    }
+    try {
+      JsonNode stored = Helper.getObjectMapper().readTree(file.toFile());
+      boolean sameMeasure = PEAK_MEASURE.equals(stored.path("peak_measure").asText());
+      if (!sameMeasure) {
+        System.out.println("Discarding the solve memory samples of " + file + ", they were measured differently");
+      }
+      for (JsonNode sample : sameMeasure ? stored.path("samples") : Helper.getObjectMapper().createArrayNode()) {
+        long chars = sample.path("statement_chars").asLong();
+        if (chars > 0) {
+          samples.add(new Sample(chars, sample.path("allocated_bytes").asLong(-1), sample.path("peak_heap_delta_bytes").asLong()));
+        }
+      }
+      while (samples.size() > maxSamples) {
+        samples.poll();
+      }
+      outOfMemoryChars = stored.path("out_of_memory_chars").asLong(-1);
+    } catch (IOException e) {
+      System.err.println("Error loading solve memory model " + file + ": " + e.getMessage());
+    }
+  }
+
+  private void save() {
+    ArrayNode stored = Helper.getObjectMapper().createArrayNode();
+    long outOfMemory;
+    synchronized (this) {
+      outOfMemory = outOfMemoryChars;
+      for (Sample sample : samples) {
+        stored.addObject()
+            .put("statement_chars", sample.chars)
+            .put("allocated_bytes", sample.allocated)
+            .put("peak_heap_delta_bytes", sample.peakHeapDelta);
+      }
+    }
+    try {
+      Path parent = file.toAbsolutePath().getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      Path temp = Files.createTempFile(parent, "solve-memory", ".tmp");
+      ObjectNode model = Helper.getObjectMapper().createObjectNode();
+      model.put("peak_measure", PEAK_MEASURE);
+      model.set("samples", stored);
+      model.put("out_of_memory_chars", outOfMemory);
+      Helper.getObjectMapper().writeValue(temp.toFile(), model);
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      System.err.println("Error saving solve memory model " + file + ": " + e.getMessage());
+    }
+  }
+
+  private static class Sample {
+    private final long chars;
+    private final long allocated;
+    private final long peakHeapDelta;
+
+    Sample(long chars, long allocated, long peakHeapDelta) {
+      this.chars = chars;
+      this.allocated = allocated;
+      this.peakHeapDelta = peakHeapDelta;
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.greyorange.mvts.designer.memory;
+
+/**
+ * Memory figures measured for one solve on the thread that ran it.
+ */
+public class SolveMemoryUsage {
+
+  private final long allocatedBytes;
+  private final long peakHeapDeltaBytes;
+
+  public SolveMemoryUsage(long allocatedBytes, long peakHeapDeltaBytes) {
+    this.allocatedBytes = allocatedBytes;
+    this.peakHeapDeltaBytes = peakHeapDeltaBytes;
+  }
+
+  /**
+   * Bytes allocated by the solving thread, or -1 if the JVM cannot count them.
+   */
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  /**
+   * How far the old generation grew above its size at the start of the solve, at its highest.
+   * See {@link SolveMemoryMeter} for what that covers.
+   */
+  public long getPeakHeapDeltaBytes() {
+    return peakHeapDeltaBytes;
+  }
+}
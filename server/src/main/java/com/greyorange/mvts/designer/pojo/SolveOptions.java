@@ -0,0 +1,76 @@
+package com.greyorange.mvts.designer.pojo;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.greyorange.mvts.designer.solution.ColumnarResultCodec;
+
+public class SolveOptions {
+  @JsonProperty("solutionDelta")
+  private boolean solutionDelta;
+
+  @JsonProperty("baseResultVersion")
+  private Long baseResultVersion;
+
+  @JsonProperty("resultEncoding")
+  private String resultEncoding;
+
+  @JsonProperty("partialSolutions")
+  private boolean partialSolutions;
+
+  @JsonProperty("warmStart")
+  private boolean warmStart;
+
+  @JsonProperty("warmStartBaseline")
+  private boolean warmStartBaseline;
+
+  public boolean isSolutionDelta() {
+    return solutionDelta;
+  }
+
+  public void setSolutionDelta(boolean solutionDelta) {
+    this.solutionDelta = solutionDelta;
+  }
+
+  public Long getBaseResultVersion() {
+    return baseResultVersion;
+  }
+
+  public void setBaseResultVersion(Long baseResultVersion) {
+    this.baseResultVersion = baseResultVersion;
+  }
+
+  public String getResultEncoding() {
+    return resultEncoding;
+  }
+
+  public void setResultEncoding(String resultEncoding) {
+    this.resultEncoding = resultEncoding;
+  }
+
+  public boolean isPartialSolutions() {
+    return partialSolutions;
+  }
+
+  public void setPartialSolutions(boolean partialSolutions) {
+    this.partialSolutions = partialSolutions;
+  }
+
+  public boolean isWarmStart() {
+    return warmStart;
+  }
+
+  public void setWarmStart(boolean warmStart) {
+    this.warmStart = warmStart;
+  }
+
+  public boolean isWarmStartBaseline() {
+    return warmStartBaseline;
+  }
+
+  public void setWarmStartBaseline(boolean warmStartBaseline) {
+    this.warmStartBaseline = warmStartBaseline;
+  }
+
+  public boolean isColumnarResult() {
+    return ColumnarResultCodec.ENCODING.equals(resultEncoding);
+  }
+}
@@ -0,0 +1,40 @@
+package com.greyorange.mvts.designer.pojo;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class ValidationError {
+  @JsonProperty("path")
+  private String path;
+
+  @JsonProperty("message")
+  private String message;
+
+  public ValidationError() {
+  }
+
+  public ValidationError(String path, String message) {
+    this.path = path;
+    this.message = message;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public void setPath(String path) {
+    this.path = path;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  @Override
+  public String toString() {
+    return path + ": " + message;
+  }
+}
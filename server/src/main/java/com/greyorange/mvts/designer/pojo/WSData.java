@@ -1,15 +1,24 @@
 package com.greyorange.mvts.designer.pojo;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.greyorange.mvts.designer.ingest.StatementPayload;
 
 public class WSData {
   @JsonProperty("type")
   WSEvent event;
 
+  @JsonProperty("requestId")
+  String requestId;
+
   @JsonProperty("data")
   JsonNode dataNode;
 
+  // data.problemStatement, streamed out of the data node as it is received
+  @JsonIgnore
+  StatementPayload problemStatement;
+
   public WSEvent getEvent() {
     return event;
   }
@@ -18,6 +27,14 @@ public class WSData {
     this.event = event;
   }
 
+  public String getRequestId() {
+    return requestId;
+  }
+
+  public void setRequestId(String requestId) {
+    this.requestId = requestId;
+  }
+
   public JsonNode getDataNode() {
     return dataNode;
   }
@@ -25,4 +42,12 @@ public class WSData {
   public void setDataNode(JsonNode dataNode) {
     this.dataNode = dataNode;
   }
+
+  public StatementPayload getProblemStatement() {
+    return problemStatement;
+  }
+
+  public void setProblemStatement(StatementPayload problemStatement) {
+    this.problemStatement = problemStatement;
+  }
 }
@@ -4,5 +4,15 @@ public enum WSEvent {
   PING,
   PONG,
   SOLVE_PROBLEM_STATEMENT,
-  PROBLEM_STATEMENT_SOLVED
+  PROBLEM_STATEMENT_SOLVED,
+  UPDATE_PROBLEM_STATEMENT,
+  PROBLEM_STATEMENT_UPDATED,
+  SOLVE_CURRENT,
+  SUBSCRIBE_JOB,
+  UNSUBSCRIBE_JOB,
+  JOB_SUBSCRIBED,
+  PARTIAL_SOLUTION,
+  CANCEL_JOB,
+  JOB_CANCEL_REQUESTED,
+  SESSION_ISSUED
 }
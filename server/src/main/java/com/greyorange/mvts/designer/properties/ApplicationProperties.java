@@ -1,6 +1,7 @@
 package com.greyorange.mvts.designer.properties;
 
 import java.io.FileInputStream;
+import java.nio.file.Paths;
 import java.util.Properties;
 
 public enum ApplicationProperties {
@@ -15,7 +16,37 @@ public enum ApplicationProperties {
         "Access-Control-Allow-Credentials": "true"
       }
       """),
-  MVTS_CONFIG_URL("MVTS_CONFIG_URL", "http://localhost:8080/mvts/config/all"),;
+  MVTS_CONFIG_URL("MVTS_CONFIG_URL", "http://localhost:8080/mvts/config/all"),
+  SESSION_STORE_TTL_MINUTES("SESSION_STORE_TTL_MINUTES", "60"),
+  SESSION_STORE_MAX_SESSIONS("SESSION_STORE_MAX_SESSIONS", "32"),
+  CONFIG_SNAPSHOT_CACHE_SIZE("CONFIG_SNAPSHOT_CACHE_SIZE", "16"),
+  VALIDATION_MAX_ERRORS("VALIDATION_MAX_ERRORS", "100"),
+  WS_MAX_MESSAGE_SIZE_MB("WS_MAX_MESSAGE_SIZE_MB", "1024"),
+  WS_SPILL_THRESHOLD_MB("WS_SPILL_THRESHOLD_MB", "8"),
+  WS_SPILL_DIR("WS_SPILL_DIR", System.getProperty("java.io.tmpdir")),
+  WARMUP_ON_STARTUP("WARMUP_ON_STARTUP", "false"),
+  WARMUP_SCALE("WARMUP_SCALE", "10"),
+  SOLVER_NODES("SOLVER_NODES", ""),
+  SOLVER_NODE_PORT("SOLVER_NODE_PORT", "8090"),
+  SOLVER_NODE_TIMEOUT_SECONDS("SOLVER_NODE_TIMEOUT_SECONDS", "900"),
+  SOLVER_HEALTH_INTERVAL_SECONDS("SOLVER_HEALTH_INTERVAL_SECONDS", "5"),
+  SOLVER_LOCAL_FALLBACK("SOLVER_LOCAL_FALLBACK", "true"),
+  SPATIAL_BUCKET_SIZE("SPATIAL_BUCKET_SIZE", "32"),
+  TILES_MAX_ENTITIES("TILES_MAX_ENTITIES", "10000"),
+  JOB_LOG_DIR("JOB_LOG_DIR", Paths.get(System.getProperty("java.io.tmpdir"), "mvts-job-logs").toString()),
+  JOB_LOG_MAX_JOBS("JOB_LOG_MAX_JOBS", "100"),
+  JOB_LOG_SEGMENT_EVENTS("JOB_LOG_SEGMENT_EVENTS", "2000"),
+  WS_LOG_SAMPLE_RATE("WS_LOG_SAMPLE_RATE", "1"),
+  SUBSCRIBER_MAX_PENDING_FRAMES("SUBSCRIBER_MAX_PENDING_FRAMES", "256"),
+  JOB_CHANNEL_RETAINED("JOB_CHANNEL_RETAINED", "16"),
+  SOLVE_HEAP_BUDGET_MB("SOLVE_HEAP_BUDGET_MB", "0"),
+  SOLVE_MEMORY_SAMPLES("SOLVE_MEMORY_SAMPLES", "64"),
+  SOLVE_MEMORY_MODEL_FILE("SOLVE_MEMORY_MODEL_FILE", Paths.get(System.getProperty("java.io.tmpdir"), "mvts-solve-memory.json").toString()),
+  SOLVE_ADMISSION_WAIT_SECONDS("SOLVE_ADMISSION_WAIT_SECONDS", "120"),
+  PARTIAL_SOLUTION_INTERVAL_SECONDS("PARTIAL_SOLUTION_INTERVAL_SECONDS", "5"),
+  WARM_START_MIN_PLANNING_SECONDS("WARM_START_MIN_PLANNING_SECONDS", "1"),
+  OBJECTIVE_COST_FIELD("OBJECTIVE_COST_FIELD", ""),
+  OBJECTIVE_LOWER_IS_BETTER("OBJECTIVE_LOWER_IS_BETTER", "true"),;
 
   private String key;
   private String value;
@@ -0,0 +1,395 @@
+package com.greyorange.mvts.designer.replay;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.greyorange.multifleetplanner.helpers.Helper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless replay of captured planner inputs, for reproducing incidents and as a repeatable perf corpus.
+ *
+ * Usage: {@code --replay <dir|file.ndjson> [--workers N] [--report replay-report.csv|.json] [--timeout SECONDS] [--warmup]
+ * [--jvm-arg ARG]... [--compare KEY=VALUE]...}
+ *
+ * Inputs are read by {@link ReplayCorpus} and handed to N {@link ReplayWorker} processes, each taking
+ * the next input when it finishes the previous one. Workers run with this JVM's options plus any
+ * --jvm-arg, and log to replay-worker-N.log next to the report. A worker that dies, e.g. out of memory,
+ * or takes longer than --timeout seconds on an input (default 600, 0 for no limit) is killed, fails its
+ * current input and is restarted for the next one. The report lists solve time, assignment
+ * count, objective and memory per input; the exit code is 1 if any input failed.
+ *
+ * With --compare, every driver also runs a second worker whose application properties are overridden
+ * with the given KEY=VALUE pairs, and hands it the same inputs in the same order. Each input's
+ * objective and assignments from both are compared, and the exit code is also 1 if any differ.
+ */
+public class ReplayCli {
+
+  private static final String USAGE = "Usage: --replay <dir|file.ndjson> [--workers N] [--report replay-report.csv|.json]"
+      + " [--timeout SECONDS] [--warmup] [--jvm-arg ARG]... [--compare KEY=VALUE]...";
+
+  // Kills workers whose solve outlives the timeout
+  private static final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "replay-watchdog");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final Path input;
+  private final int workers;
+  private final Path report;
+  private final long timeoutSeconds;
+  private final boolean warmup;
+  private final List<String> jvmArgs;
+  private final Map<String, String> compare;
+  private Path compareProperties;
+
+  private ReplayCli(Path input, int workers, Path report, long timeoutSeconds, boolean warmup, List<String> jvmArgs,
+      Map<String, String> compare) {
+    this.input = input;
+    this.workers = workers;
+    this.report = report;
+    this.timeoutSeconds = timeoutSeconds;
+    this.warmup = warmup;
+    this.jvmArgs = jvmArgs;
+    this.compare = compare;
+  }
+
+  public static void main(String[] args) throws Exception {
+    System.exit(run(args));
+  }
+
+  /**
+   * Runs the replay and returns the process exit code: 0 if every input solved, 1 if any failed, 2 on bad usage.
+   */
+  public static int run(String[] args) throws Exception {
+    Path input = null;
+    int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    Path report = Paths.get("replay-report.csv");
+    long timeoutSeconds = 600;
+    boolean warmup = false;
+    List<String> jvmArgs = new ArrayList<>();
+    Map<String, String> compare = new LinkedHashMap<>();
+
+    try {
+      for (int i = 0; i < args.length; i++) {
+        switch (args[i]) {
+          case "--workers":
+            workers = Integer.parseInt(args[++i]);
+            break;
+          case "--report":
+            report = Paths.get(args[++i]);
+            break;
+          case "--timeout":
+            timeoutSeconds = Long.parseLong(args[++i]);
+            break;
+          case "--warmup":
+            warmup = true;
+            break;
+          case "--jvm-arg":
+            jvmArgs.add(args[++i]);
+            break;
+          case "--compare":
+            String override = args[++i];
+            int separator = override.indexOf('=');
+            if (separator <= 0) {
+              throw new IllegalArgumentException("--compare expects KEY=VALUE, got " + override);
+            }
+            compare.put(override.substring(0, separator), override.substring(separator + 1));
+            break;
+          default:
+            if (args[i].startsWith("--") || input != null) {
+              throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+            input = Paths.get(args[i]);
+        }
+      }
+      if (input == null || workers < 1) {
+        throw new IllegalArgumentException("An input directory or file is required");
+      }
+      if (timeoutSeconds < 0) {
+        throw new IllegalArgumentException("--timeout must be 0 or more seconds");
+      }
+    } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+      System.err.println(e instanceof ArrayIndexOutOfBoundsException ? "Missing argument value" : e.getMessage());
+      System.err.println(USAGE);
+      return 2;
+    }
+
+    return new ReplayCli(input, workers, report, timeoutSeconds, warmup, jvmArgs, compare).replay();
+  }
+
+  private int replay() throws Exception {
+    ReplayReport results = new ReplayReport();
+    AtomicInteger done = new AtomicInteger();
+    long start = System.nanoTime();
+    if (!compare.isEmpty()) {
+      compareProperties = writeCompareProperties();
+    }
+
+    try (ReplayCorpus corpus = new ReplayCorpus(input)) {
+      List<Thread> threads = new ArrayList<>();
+      for (int i = 1; i <= workers; i++) {
+        int workerId = i;
+        Thread thread = new Thread(() -> drive(workerId, corpus, results, done), "replay-driver-" + workerId);
+        thread.start();
+        threads.add(thread);
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+    }
+
+    results.write(report);
+    ObjectNode times = results.getSolveTimes();
+    System.out.println("Replayed " + results.getRows().size() + " inputs on " + workers + " workers in "
+        + (System.nanoTime() - start) / 1_000_000 + " ms: " + results.getFailed() + " failed, solve median "
+        + times.path("median_ms").asLong() + " ms, p95 " + times.path("p95_ms").asLong() + " ms, max "
+        + times.path("max_ms").asLong() + " ms");
+    if (compareProperties != null) {
+      ObjectNode compareTimes = results.getCompareSolveTimes();
+      System.out.println("With " + compare + ": " + results.getDifferent() + " inputs differ, solve median "
+          + compareTimes.path("median_ms").asLong() + " ms, p95 " + compareTimes.path("p95_ms").asLong() + " ms, max "
+          + compareTimes.path("max_ms").asLong() + " ms");
+      Files.deleteIfExists(compareProperties);
+    }
+    System.out.println("Report written to " + report.toAbsolutePath());
+    return results.getFailed() > 0 || results.getDifferent() > 0 ? 1 : 0;
+  }
+
+  /**
+   * Writes the application properties the compared workers run with: this process's, as ApplicationProperties
+   * loads them, with the --compare overrides on top.
+   */
+  private Path writeCompareProperties() throws IOException {
+    Properties properties = new Properties();
+    String path = System.getenv("PSS_PROPERTIES_FILE_PATH");
+    Path base = Paths.get(path != null ? path : "config/pss.properties");
+    if (Files.isRegularFile(base)) {
+      try (FileInputStream in = new FileInputStream(base.toFile())) {
+        properties.load(in);
+      }
+    }
+    properties.putAll(compare);
+    Path file = Files.createTempFile("replay-compare", ".properties");
+    try (OutputStream out = Files.newOutputStream(file)) {
+      properties.store(out, "Replay --compare " + compare);
+    }
+    return file;
+  }
+
+  /**
+   * Feeds inputs to one worker process, and with --compare to its compared worker, until the corpus is exhausted.
+   */
+  private void drive(int workerId, ReplayCorpus corpus, ReplayReport results, AtomicInteger done) {
+    WorkerSlot worker = new WorkerSlot(workerId, null);
+    WorkerSlot comparedWorker = compareProperties != null ? new WorkerSlot(workerId, compareProperties) : null;
+    try {
+      ReplayInput replayInput;
+      while ((replayInput = corpus.next()) != null) {
+        ObjectNode row;
+        ObjectNode comparedRow = null;
+        if (replayInput.getError() != null) {
+          row = Helper.getObjectMapper().createObjectNode().put("status", "error").put("error", replayInput.getError());
+        } else {
+          row = worker.solve(replayInput.getRequest());
+          if (comparedWorker != null) {
+            comparedRow = comparedWorker.solve(replayInput.getRequest());
+          }
+        }
+
+        ObjectNode reportRow = Helper.getObjectMapper().createObjectNode();
+        reportRow.put("index", replayInput.getIndex());
+        reportRow.put("name", replayInput.getName());
+        reportRow.put("worker", workerId);
+        reportRow.setAll(row);
+        if (comparedRow != null) {
+          ReplayReport.addComparison(reportRow, comparedRow);
+        }
+        results.add(replayInput.getIndex(), reportRow);
+        System.out.println("[" + done.incrementAndGet() + "] " + replayInput.getName() + ": "
+            + reportRow.path("status").asText() + ", " + reportRow.path("solve_ms").asLong() + " ms, "
+            + reportRow.path("assignments").asInt() + " assignments"
+            + (reportRow.has("error") ? " (" + reportRow.path("error").asText() + ")" : "")
+            + (reportRow.has("difference") ? ", differs: " + reportRow.path("difference").asText() : ""));
+      }
+    } catch (IOException e) {
+      System.err.println("Error reading replay input: " + e.getMessage());
+      e.printStackTrace();
+    } finally {
+      worker.close();
+      if (comparedWorker != null) {
+        comparedWorker.close();
+      }
+    }
+  }
+
+  private WorkerProcess startWorker(int workerId, Path propertiesFile) throws IOException {
+    List<String> command = new ArrayList<>();
+    command.add(ProcessHandle.current().info().command()
+        .orElse(Paths.get(System.getProperty("java.home"), "bin", "java").toString()));
+    for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+      // A debugger port can only be bound once
+      if (!argument.startsWith("-agentlib:jdwp")) {
+        command.add(argument);
+      }
+    }
+    command.addAll(jvmArgs);
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(ReplayWorker.class.getName());
+    if (warmup) {
+      command.add("--warmup");
+    }
+
+    Path parent = Files.createDirectories(report.toAbsolutePath().getParent());
+    Path log = parent.resolve("replay-worker-" + workerId + (propertiesFile != null ? "-compare" : "") + ".log");
+    ProcessBuilder builder = new ProcessBuilder(command)
+        .redirectError(ProcessBuilder.Redirect.appendTo(log.toFile()));
+    if (propertiesFile != null) {
+      builder.environment().put("PSS_PROPERTIES_FILE_PATH", propertiesFile.toString());
+    }
+    return new WorkerProcess(builder.start());
+  }
+
+  /**
+   * One driver's worker, restarted when it dies or times out.
+   */
+  private class WorkerSlot {
+    private final int workerId;
+    private final Path propertiesFile;
+    private WorkerProcess process;
+
+    WorkerSlot(int workerId, Path propertiesFile) {
+      this.workerId = workerId;
+      this.propertiesFile = propertiesFile;
+    }
+
+    /**
+     * Solves one request, returning an error row if the worker fails on it.
+     */
+    ObjectNode solve(String request) {
+      try {
+        if (process != null && !process.isUsable()) {
+          // Killed by the timeout just as its reply came in
+          process.destroy();
+          process = null;
+        }
+        if (process == null) {
+          process = startWorker(workerId, propertiesFile);
+        }
+        return process.solve(request, timeoutSeconds);
+      } catch (IOException e) {
+        String exit = process != null ? process.describeExit() : "";
+        if (process != null) {
+          process.destroy();
+          process = null;
+        }
+        return Helper.getObjectMapper().createObjectNode().put("status", "error")
+            .put("error", "Worker failed: " + e.getMessage() + exit);
+      }
+    }
+
+    void close() {
+      if (process != null) {
+        process.close();
+      }
+    }
+  }
+
+  /**
+   * A running worker JVM, spoken to one request line at a time.
+   */
+  private static class WorkerProcess {
+    private final Process process;
+    private final BufferedWriter requests;
+    private final BufferedReader replies;
+    private volatile boolean timedOut;
+
+    WorkerProcess(Process process) {
+      this.process = process;
+      this.requests = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+      this.replies = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends one request and waits for its reply, killing the worker if none comes within timeoutSeconds.
+     */
+    ObjectNode solve(String request, long timeoutSeconds) throws IOException {
+      requests.write(request);
+      requests.newLine();
+      requests.flush();
+      ScheduledFuture<?> timeout = timeoutSeconds > 0
+          ? watchdog.schedule(this::timeOut, timeoutSeconds, TimeUnit.SECONDS) : null;
+      String reply;
+      try {
+        reply = replies.readLine();
+      } finally {
+        if (timeout != null) {
+          timeout.cancel(false);
+        }
+      }
+      if (reply == null) {
+        throw new IOException(timedOut ? "timed out after " + timeoutSeconds + " s" : "worker exited");
+      }
+      return (ObjectNode) Helper.getObjectMapper().readTree(reply);
+    }
+
+    boolean isUsable() {
+      return !timedOut && process.isAlive();
+    }
+
+    private void timeOut() {
+      // The worker's output then ends, which unblocks the reading driver thread
+      timedOut = true;
+      process.destroyForcibly();
+    }
+
+    String describeExit() {
+      try {
+        if (process.waitFor(5, TimeUnit.SECONDS)) {
+          return " (exit code " + process.exitValue() + ")";
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return "";
+    }
+
+    void destroy() {
+      process.destroyForcibly();
+    }
+
+    void close() {
+      try {
+        requests.close();
+        process.waitFor();
+      } catch (IOException e) {
+        process.destroyForcibly();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        process.destroyForcibly();
+      }
+    }
+  }
+}
@@ -0,0 +1,209 @@
+package com.greyorange.mvts.designer.replay;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greyorange.multifleetplanner.helpers.Helper;
+import com.greyorange.mvts.designer.config.ConfigFlattener;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads the statements to replay, one at a time, from a file or from every file of a directory.
+ *
+ * .ndjson and .jsonl files hold one record per line; a .json file holds one record or an array of them.
+ * A record is either a bare planner InputMessage, an object with "problemStatement" and optional
+ * "config" and "name" fields, or a captured SOLVE_PROBLEM_STATEMENT message carrying both under "data".
+ * Configs may be nested as the UI sends them or already flattened. Records are streamed, so only the
+ * records currently handed to workers are held in memory.
+ */
+class ReplayCorpus implements Closeable {
+
+  private final ObjectMapper mapper = Helper.getObjectMapper();
+  private final JsonFactory factory = mapper.getFactory();
+  private final ArrayDeque<Path> files;
+
+  private Path currentFile;
+  private BufferedReader lines;
+  private int lineNumber;
+  private JsonParser arrayParser;
+  private int arrayIndex;
+  private int nextIndex;
+
+  ReplayCorpus(Path path) throws IOException {
+    List<Path> found = new ArrayList<>();
+    if (Files.isDirectory(path)) {
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(path)) {
+        for (Path entry : entries) {
+          if (Files.isRegularFile(entry) && isCorpusFile(entry)) {
+            found.add(entry);
+          }
+        }
+      }
+      Collections.sort(found);
+    } else if (Files.isRegularFile(path)) {
+      found.add(path);
+    } else {
+      throw new IOException("No such file or directory: " + path);
+    }
+    files = new ArrayDeque<>(found);
+  }
+
+  /**
+   * Returns the next input, or null once every file has been read.
+   */
+  synchronized ReplayInput next() throws IOException {
+    while (true) {
+      if (lines != null) {
+        String line;
+        while ((line = lines.readLine()) != null) {
+          lineNumber++;
+          if (!line.isBlank()) {
+            return toInput(currentFile.getFileName() + ":" + lineNumber, line);
+          }
+        }
+        lines.close();
+        lines = null;
+      }
+
+      if (arrayParser != null) {
+        String name = currentFile.getFileName() + "[" + arrayIndex++ + "]";
+        try {
+          if (arrayParser.nextToken() == JsonToken.START_OBJECT) {
+            return toInput(name, copyCurrentValue(arrayParser));
+          }
+        } catch (IOException e) {
+          // The rest of the array cannot be read past a syntax error
+          arrayParser.close();
+          arrayParser = null;
+          return ReplayInput.unreadable(nextIndex++, name, "Invalid JSON: " + e.getMessage());
+        }
+        arrayParser.close();
+        arrayParser = null;
+      }
+
+      currentFile = files.poll();
+      if (currentFile == null) {
+        return null;
+      }
+      if (isLineDelimited(currentFile)) {
+        lines = Files.newBufferedReader(currentFile, StandardCharsets.UTF_8);
+        lineNumber = 0;
+        continue;
+      }
+
+      String name = currentFile.getFileName().toString();
+      JsonParser parser = factory.createParser(Files.newBufferedReader(currentFile, StandardCharsets.UTF_8));
+      try {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_ARRAY) {
+          arrayParser = parser;
+          arrayIndex = 0;
+          continue;
+        }
+        if (token != JsonToken.START_OBJECT) {
+          parser.close();
+          return ReplayInput.unreadable(nextIndex++, name, "Expected a JSON object or array");
+        }
+        String record = copyCurrentValue(parser);
+        parser.close();
+        return toInput(name, record);
+      } catch (IOException e) {
+        parser.close();
+        return ReplayInput.unreadable(nextIndex++, name, "Invalid JSON: " + e.getMessage());
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (lines != null) {
+      lines.close();
+    }
+    if (arrayParser != null) {
+      arrayParser.close();
+    }
+  }
+
+  /**
+   * Turns a record into a worker request, keeping the statement as compact JSON text.
+   */
+  private ReplayInput toInput(String name, String record) {
+    int index = nextIndex++;
+    try (JsonParser parser = factory.createParser(record)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return ReplayInput.unreadable(index, name, "Expected a JSON object");
+      }
+      RecordFields fields = new RecordFields();
+      readFields(parser, fields);
+
+      if (fields.problemStatement == null) {
+        // A bare InputMessage; its own fields are not wrapper fields
+        return ReplayInput.of(index, name, "{\"config\":{},\"problemStatement\":" + record + "}");
+      }
+      Map<String, String> configs = ConfigFlattener.flatten(fields.config);
+      String request = "{\"config\":" + mapper.writeValueAsString(configs) + ",\"problemStatement\":" + fields.problemStatement + "}";
+      return ReplayInput.of(index, fields.name != null ? fields.name : name, request);
+    } catch (IOException e) {
+      return ReplayInput.unreadable(index, name, "Invalid JSON: " + e.getMessage());
+    }
+  }
+
+  private void readFields(JsonParser parser, RecordFields fields) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+      if ("problemStatement".equals(field) && token == JsonToken.START_OBJECT) {
+        fields.problemStatement = copyCurrentValue(parser);
+      } else if ("config".equals(field)) {
+        fields.config = mapper.readTree(parser);
+      } else if ("name".equals(field) && token == JsonToken.VALUE_STRING) {
+        fields.name = parser.getText();
+      } else if ("data".equals(field) && token == JsonToken.START_OBJECT) {
+        // A captured WebSocket message
+        readFields(parser, fields);
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+  private String copyCurrentValue(JsonParser parser) throws IOException {
+    StringWriter writer = new StringWriter();
+    try (JsonGenerator generator = factory.createGenerator(writer)) {
+      generator.copyCurrentStructure(parser);
+    }
+    return writer.toString();
+  }
+
+  private static boolean isCorpusFile(Path file) {
+    return isLineDelimited(file) || file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json");
+  }
+
+  private static boolean isLineDelimited(Path file) {
+    String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+    return name.endsWith(".ndjson") || name.endsWith(".jsonl");
+  }
+
+  private static class RecordFields {
+    private String name;
+    private JsonNode config;
+    private String problemStatement;
+  }
+}
@@ -0,0 +1,49 @@
+package com.greyorange.mvts.designer.replay;
+
+/**
+ * One captured statement of a replay corpus, ready to be sent to a worker.
+ */
+class ReplayInput {
+
+  private final int index;
+  private final String name;
+  private final String request;
+  private final String error;
+
+  private ReplayInput(int index, String name, String request, String error) {
+    this.index = index;
+    this.name = name;
+    this.request = request;
+    this.error = error;
+  }
+
+  static ReplayInput of(int index, String name, String request) {
+    return new ReplayInput(index, name, request, null);
+  }
+
+  /**
+   * An input that could not be read; it is reported as failed without being solved.
+   */
+  static ReplayInput unreadable(int index, String name, String error) {
+    return new ReplayInput(index, name, null, error);
+  }
+
+  int getIndex() {
+    return index;
+  }
+
+  String getName() {
+    return name;
+  }
+
+  /**
+   * The worker request line: {"config": {flattened overrides}, "problemStatement": {...}}.
+   */
+  String getRequest() {
+    return request;
+  }
+
+  String getError() {
+    return error;
+  }
+}
@@ -0,0 +1,220 @@
+package com.greyorange.mvts.designer.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.greyorange.multifleetplanner.helpers.Helper;
+import com.greyorange.mvts.designer.config.ConfigFlattener;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Collects one row per replayed input and writes them, in input order, as CSV or, for a .json
+ * path, as JSON with totals. Objective fields are reported under "objective." columns, whatever
+ * fields the planner's cost block has. Rows of a --compare replay also carry the compared solve's
+ * status, time and assignment count, and whether its objective and assignments were the same.
+ */
+class ReplayReport {
+
+  private static final String[] COLUMNS = {
+      "index", "name", "status", "solve_ms", "assignments", "allocated_bytes", "peak_heap_delta_bytes", "worker"
+  };
+  private static final String[] COMPARE_COLUMNS = {
+      "compare_status", "compare_solve_ms", "compare_assignments", "equivalent", "difference"
+  };
+
+  private final ConcurrentSkipListMap<Integer, ObjectNode> rows = new ConcurrentSkipListMap<>();
+
+  void add(int index, ObjectNode row) {
+    rows.put(index, row);
+  }
+
+  Collection<ObjectNode> getRows() {
+    return rows.values();
+  }
+
+  int getFailed() {
+    int failed = 0;
+    for (ObjectNode row : rows.values()) {
+      if (!"ok".equals(row.path("status").asText())) {
+        failed++;
+      }
+    }
+    return failed;
+  }
+
+  /**
+   * The number of rows whose compared solve did not give the same result.
+   */
+  int getDifferent() {
+    int different = 0;
+    for (ObjectNode row : rows.values()) {
+      if (row.has("equivalent") && !row.path("equivalent").asBoolean()) {
+        different++;
+      }
+    }
+    return different;
+  }
+
+  /**
+   * Adds a compared solve of the same input to its row. The two are the same if both solved with equal
+   * objectives and assignments, or both failed.
+   */
+  static void addComparison(ObjectNode row, ObjectNode compared) {
+    String status = row.path("status").asText();
+    String compareStatus = compared.path("status").asText();
+    row.put("compare_status", compareStatus);
+    row.put("compare_solve_ms", compared.path("solve_ms").asLong());
+    row.put("compare_assignments", compared.path("assignments").asInt());
+    if (compared.has("error")) {
+      row.put("compare_error", compared.path("error").asText());
+    }
+
+    String difference = null;
+    if (!status.equals(compareStatus)) {
+      difference = "status " + status + " vs " + compareStatus;
+    } else if ("ok".equals(status)) {
+      if (!row.path("objective").equals(compared.path("objective"))) {
+        difference = "objective " + row.path("objective") + " vs " + compared.path("objective");
+      } else if (!row.path("assignments_digest").equals(compared.path("assignments_digest"))) {
+        difference = "assignments";
+      }
+    }
+    row.put("equivalent", difference == null);
+    if (difference != null) {
+      row.put("difference", difference);
+    }
+  }
+
+  /**
+   * Solve time statistics over the successful inputs: count, total, median, p95 and max.
+   */
+  ObjectNode getSolveTimes() {
+    return getSolveTimes("status", "solve_ms");
+  }
+
+  /**
+   * Solve time statistics of the compared solves, as {@link #getSolveTimes()}.
+   */
+  ObjectNode getCompareSolveTimes() {
+    return getSolveTimes("compare_status", "compare_solve_ms");
+  }
+
+  private ObjectNode getSolveTimes(String statusField, String timeField) {
+    List<Long> times = new ArrayList<>();
+    for (ObjectNode row : rows.values()) {
+      if ("ok".equals(row.path(statusField).asText())) {
+        times.add(row.path(timeField).asLong());
+      }
+    }
+    times.sort(null);
+    long total = 0;
+    for (long time : times) {
+      total += time;
+    }
+    ObjectNode stats = Helper.getObjectMapper().createObjectNode();
+    stats.put("count", times.size());
+    stats.put("total_ms", total);
+    if (!times.isEmpty()) {
+      stats.put("median_ms", times.get((times.size() - 1) / 2));
+      stats.put("p95_ms", times.get((int) Math.ceil(times.size() * 0.95) - 1));
+      stats.put("max_ms", times.get(times.size() - 1));
+    }
+    return stats;
+  }
+
+  void write(Path file) throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json")) {
+      writeJson(file);
+    } else {
+      writeCsv(file);
+    }
+  }
+
+  private void writeJson(Path file) throws IOException {
+    ObjectMapper mapper = Helper.getObjectMapper();
+    ObjectNode report = mapper.createObjectNode();
+    report.put("inputs", rows.size());
+    report.put("failed", getFailed());
+    report.set("solve_times", getSolveTimes());
+    if (isCompared()) {
+      report.put("different", getDifferent());
+      report.set("compare_solve_times", getCompareSolveTimes());
+    }
+    report.putArray("results").addAll(rows.values());
+    mapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+  }
+
+  private void writeCsv(Path file) throws IOException {
+    TreeSet<String> objectiveColumns = new TreeSet<>();
+    for (ObjectNode row : rows.values()) {
+      objectiveColumns.addAll(ConfigFlattener.flatten(row.get("objective")).keySet());
+    }
+    List<String> columns = new ArrayList<>(List.of(COLUMNS));
+    if (isCompared()) {
+      columns.addAll(List.of(COMPARE_COLUMNS));
+    }
+
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      List<String> header = new ArrayList<>(columns);
+      for (String column : objectiveColumns) {
+        header.add("objective." + column);
+      }
+      header.add("error");
+      writeCsvLine(writer, header);
+
+      for (ObjectNode row : rows.values()) {
+        List<String> values = new ArrayList<>();
+        for (String column : columns) {
+          JsonNode value = row.get(column);
+          values.add(value == null || value.isNull() ? "" : value.asText());
+        }
+        Map<String, String> objective = ConfigFlattener.flatten(row.get("objective"));
+        for (String column : objectiveColumns) {
+          values.add(objective.getOrDefault(column, ""));
+        }
+        values.add(row.has("compare_error") && !row.has("error")
+            ? "compared: " + row.path("compare_error").asText() : row.path("error").asText(""));
+        writeCsvLine(writer, values);
+      }
+    }
+  }
+
+  private boolean isCompared() {
+    for (ObjectNode row : rows.values()) {
+      if (row.has("equivalent")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void writeCsvLine(BufferedWriter writer, List<String> values) throws IOException {
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) {
+        writer.write(',');
+      }
+      String value = values.get(i);
+      if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+        value = "\"" + value.replace("\"", "\"\"") + "\"";
+      }
+      writer.write(value);
+    }
+    writer.newLine();
+  }
+}
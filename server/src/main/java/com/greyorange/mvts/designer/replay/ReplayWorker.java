@@ -0,0 +1,117 @@
+package com.greyorange.mvts.designer.replay;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.greyorange.multifleetplanner.helpers.Helper;
+import com.greyorange.mvts.designer.cluster.LocalSolver;
+import com.greyorange.mvts.designer.cluster.SolveResult;
+import com.greyorange.mvts.designer.solution.SolutionSummary;
+import com.greyorange.mvts.designer.warmup.WarmupSolve;
+
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A replay worker process, started by {@link ReplayCli}.
+ *
+ * The planner keeps its state in statics, so every worker is a JVM of its own. It reads one request per
+ * line from stdin, {"config": {flattened overrides}, "problemStatement": {...}}, solves it and answers
+ * with one JSON line on stdout. Everything else the process prints, the planner's logging included, is
+ * moved to stderr so it cannot corrupt the replies.
+ */
+public class ReplayWorker {
+
+  public static void main(String[] args) throws Exception {
+    PrintStream replies = new PrintStream(new FileOutputStream(FileDescriptor.out), true, StandardCharsets.UTF_8);
+    System.setOut(System.err);
+
+    com.greyorange.multifleetplanner.server.Server.getInstance();
+    if (Arrays.asList(args).contains("--warmup")) {
+      new WarmupSolve().run();
+    }
+
+    BufferedReader requests = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+    String request;
+    while ((request = requests.readLine()) != null) {
+      replies.println(solve(request).toString());
+    }
+  }
+
+  /**
+   * Solves one request and returns its report row: solve time, assignment count, a digest of the
+   * assignments, the planner's cost block as the objective and the memory the solve took.
+   */
+  static ObjectNode solve(String request) {
+    ObjectMapper mapper = Helper.getObjectMapper();
+    ObjectNode reply = mapper.createObjectNode();
+    Map<String, String> configs = new HashMap<>();
+    StringWriter problemStatement = new StringWriter();
+
+    try (JsonParser parser = mapper.getFactory().createParser(request)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("Request must be a JSON object");
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        parser.nextToken();
+        if ("config".equals(field)) {
+          configs = mapper.readValue(parser, new TypeReference<Map<String, String>>() {});
+        } else if ("problemStatement".equals(field)) {
+          try (JsonGenerator generator = mapper.getFactory().createGenerator(problemStatement)) {
+            generator.copyCurrentStructure(parser);
+          }
+        } else {
+          parser.skipChildren();
+        }
+      }
+    } catch (IOException e) {
+      return reply.put("status", "error").put("error", "Invalid request: " + e.getMessage());
+    }
+
+    long start = System.nanoTime();
+    try {
+      SolveResult solveResult = LocalSolver.solve(problemStatement.toString(), configs);
+      reply.put("solve_ms", (System.nanoTime() - start) / 1_000_000);
+
+      JsonNode result = mapper.readTree(solveResult.getResult());
+      reply.put("status", "ok");
+      JsonNode assignments = result.path("schedule").path("assignments");
+      reply.put("assignments", assignments.size());
+      reply.put("assignments_digest", digest(mapper.writeValueAsBytes(assignments)));
+      JsonNode cost = SolutionSummary.readObjective(result);
+      if (cost != null) {
+        reply.set("objective", cost);
+      }
+      reply.put("allocated_bytes", solveResult.getMemoryUsage().getAllocatedBytes());
+      reply.put("peak_heap_delta_bytes", solveResult.getMemoryUsage().getPeakHeapDeltaBytes());
+    } catch (Exception | OutOfMemoryError e) {
+      if (!reply.has("solve_ms")) {
+        reply.put("solve_ms", (System.nanoTime() - start) / 1_000_000);
+      }
+      reply.put("status", "error");
+      reply.put("error", String.valueOf(e.getCause() != null ? e.getCause() : e));
+    }
+    return reply;
+  }
+
+  private static String digest(byte[] bytes) throws NoSuchAlgorithmException {
+    return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+  }
+}
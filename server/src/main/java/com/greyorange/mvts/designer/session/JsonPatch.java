@@ -0,0 +1,164 @@
+package com.greyorange.mvts.designer.session;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Minimal RFC 6902 JSON Patch implementation on top of Jackson trees.
+ *
+ * Operations are applied in place so the cost of a patch is proportional to the
+ * number of operations, not to the size of the document. If an operation fails the
+ * document may be left partially patched; callers are expected to discard it.
+ */
+public final class JsonPatch {
+
+  private JsonPatch() {
+  }
+
+  /**
+   * Applies every operation of the patch to the document.
+   *
+   * @param document The document to patch, modified in place.
+   * @param patch The JSON Patch array.
+   * @return The patched document (a different node only when the root itself is replaced).
+   */
+  public static JsonNode apply(JsonNode document, JsonNode patch) {
+    if (patch == null || !patch.isArray()) {
+      throw new IllegalArgumentException("JSON Patch must be an array of operations");
+    }
+
+    JsonNode root = document;
+    for (int i = 0; i < patch.size(); i++) {
+      JsonNode operation = patch.get(i);
+      try {
+        root = applyOperation(root, operation);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Patch operation " + i + " failed: " + e.getMessage(), e);
+      }
+    }
+    return root;
+  }
+
+  private static JsonNode applyOperation(JsonNode root, JsonNode operation) {
+    String op = requiredText(operation, "op");
+    JsonPointer path = JsonPointer.compile(requiredText(operation, "path"));
+
+    switch (op) {
+      case "add":
+        return add(root, path, requiredValue(operation));
+      case "remove":
+        return remove(root, path);
+      case "replace":
+        if (path.matches()) {
+          return requiredValue(operation);
+        }
+        remove(root, path);
+        return add(root, path, requiredValue(operation));
+      case "move": {
+        JsonPointer from = JsonPointer.compile(requiredText(operation, "from"));
+        if (path.toString().startsWith(from.toString() + "/")) {
+          throw new IllegalArgumentException("cannot move " + from + " into its own child " + path);
+        }
+        JsonNode value = get(root, from);
+        root = remove(root, from);
+        return add(root, path, value);
+      }
+      case "copy": {
+        JsonPointer from = JsonPointer.compile(requiredText(operation, "from"));
+        return add(root, path, get(root, from).deepCopy());
+      }
+      case "test":
+        if (!get(root, path).equals(requiredValue(operation))) {
+          throw new IllegalArgumentException("test failed at " + path);
+        }
+        return root;
+      default:
+        throw new IllegalArgumentException("unsupported operation '" + op + "'");
+    }
+  }
+
+  private static JsonNode add(JsonNode root, JsonPointer path, JsonNode value) {
+    if (path.matches()) {
+      return value;
+    }
+
+    JsonNode parent = get(root, path.head());
+    String token = path.last().getMatchingProperty();
+
+    if (parent.isObject()) {
+      ((ObjectNode) parent).set(token, value);
+    } else if (parent.isArray()) {
+      ArrayNode array = (ArrayNode) parent;
+      if ("-".equals(token)) {
+        array.add(value);
+      } else {
+        int index = arrayIndex(token, array.size());
+        array.insert(index, value);
+      }
+    } else {
+      throw new IllegalArgumentException("parent of " + path + " is not a container");
+    }
+    return root;
+  }
+
+  private static JsonNode remove(JsonNode root, JsonPointer path) {
+    if (path.matches()) {
+      throw new IllegalArgumentException("cannot remove the document root");
+    }
+
+    JsonNode parent = get(root, path.head());
+    String token = path.last().getMatchingProperty();
+
+    if (parent.isObject()) {
+      if (!parent.has(token)) {
+        throw new IllegalArgumentException("no member at " + path);
+      }
+      ((ObjectNode) parent).remove(token);
+    } else if (parent.isArray()) {
+      ArrayNode array = (ArrayNode) parent;
+      int index = arrayIndex(token, array.size() - 1);
+      array.remove(index);
+    } else {
+      throw new IllegalArgumentException("parent of " + path + " is not a container");
+    }
+    return root;
+  }
+
+  private static JsonNode get(JsonNode root, JsonPointer path) {
+    JsonNode node = root.at(path);
+    if (node.isMissingNode()) {
+      throw new IllegalArgumentException("no value at " + path);
+    }
+    return node;
+  }
+
+  private static int arrayIndex(String token, int maxIndex) {
+    int index;
+    try {
+      index = Integer.parseInt(token);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("invalid array index '" + token + "'");
+    }
+    if (index < 0 || index > maxIndex) {
+      throw new IllegalArgumentException("array index " + index + " out of bounds");
+    }
+    return index;
+  }
+
+  private static String requiredText(JsonNode operation, String field) {
+    JsonNode node = operation.get(field);
+    if (node == null || !node.isTextual()) {
+      throw new IllegalArgumentException("missing '" + field + "'");
+    }
+    return node.asText();
+  }
+
+  private static JsonNode requiredValue(JsonNode operation) {
+    if (!operation.has("value")) {
+      throw new IllegalArgumentException("missing 'value'");
+    }
+    return operation.get("value");
+  }
+}
@@ -0,0 +1,92 @@
+package com.greyorange.mvts.designer.session;
+
+import com.greyorange.mvts.designer.properties.ApplicationProperties;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the last problem statement of each studio client so that later requests
+ * only need to send a JSON Patch instead of the whole warehouse.
+ *
+ * Session ids are random UUIDs issued by the store, never chosen by clients, so a session can
+ * only be reached by the client its id was sent to.
+ *
+ * Sessions are evicted when idle for longer than SESSION_STORE_TTL_MINUTES, and the
+ * least recently used session is dropped once SESSION_STORE_MAX_SESSIONS is exceeded.
+ */
+public class ProblemStatementSessionStore {
+
+  private static ProblemStatementSessionStore instance;
+
+  private final long ttlMillis;
+  private final int maxSessions;
+  private final LinkedHashMap<String, StudioSession> sessions;
+
+  private ProblemStatementSessionStore() {
+    ttlMillis = TimeUnit.MINUTES.toMillis(ApplicationProperties.SESSION_STORE_TTL_MINUTES.getIntValue());
+    maxSessions = ApplicationProperties.SESSION_STORE_MAX_SESSIONS.getIntValue();
+    sessions = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, StudioSession> eldest) {
+        if (size() > maxSessions) {
+          eldest.getValue().discard();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  public static ProblemStatementSessionStore getInstance() {
+    if (instance == null) {
+      synchronized (ProblemStatementSessionStore.class) {
+        if (instance == null) {
+          instance = new ProblemStatementSessionStore();
+        }
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Creates a session under a newly issued id.
+   */
+  public synchronized StudioSession create() {
+    evictExpired();
+    StudioSession session = new StudioSession(UUID.randomUUID().toString());
+    sessions.put(session.getId(), session);
+    return session;
+  }
+
+  /**
+   * Returns the session with the given id, or null if the id is null, unknown or has expired.
+   */
+  public synchronized StudioSession get(String sessionId) {
+    if (sessionId == null) {
+      return null;
+    }
+    evictExpired();
+    StudioSession session = sessions.get(sessionId);
+    if (session != null) {
+      session.touch();
+    }
+    return session;
+  }
+
+  private void evictExpired() {
+    // Entries are kept in access order, so the expired ones are all at the head
+    long now = System.currentTimeMillis();
+    for (Iterator<StudioSession> it = sessions.values().iterator(); it.hasNext(); ) {
+      StudioSession session = it.next();
+      if (now - session.getLastAccessMillis() <= ttlMillis) {
+        break;
+      }
+      session.discard();
+      it.remove();
+    }
+  }
+}
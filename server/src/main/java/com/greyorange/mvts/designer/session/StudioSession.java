@@ -0,0 +1,213 @@
+package com.greyorange.mvts.designer.session;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greyorange.multifleetplanner.helpers.Helper;
+import com.greyorange.mvts.designer.ingest.StatementPayload;
+import com.greyorange.mvts.designer.properties.ApplicationProperties;
+import com.greyorange.mvts.designer.spatial.GridSpatialIndex;
+import com.greyorange.mvts.designer.spatial.SpatialIndexBuilder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Server-side state kept for one studio client between solves.
+ *
+ * The statement is kept as uploaded until the first patch arrives; only then is it parsed
+ * into a tree, so clients that never patch do not pay for the tree.
+ */
+public class StudioSession {
+
+  private final String id;
+  private StatementPayload problemStatementPayload;
+  private JsonNode problemStatement;
+  private Map<String, String> configs = new HashMap<>();
+  private long version;
+  private JsonNode lastResult;
+  private StatementPayload lastResultStatement;
+  private long resultVersion;
+  private GridSpatialIndex spatialIndex;
+  private volatile long lastAccessMillis = System.currentTimeMillis();
+
+  StudioSession(String id) {
+    this.id = id;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public long getLastAccessMillis() {
+    return lastAccessMillis;
+  }
+
+  void touch() {
+    lastAccessMillis = System.currentTimeMillis();
+  }
+
+  public synchronized boolean hasProblemStatement() {
+    return problemStatement != null || problemStatementPayload != null;
+  }
+
+  /**
+   * Replaces the stored problem statement with a freshly uploaded one.
+   *
+   * @param payload The full problem statement, already retained for this session.
+   * @param newVersion The client's version of the statement, or null to increment the current one.
+   */
+  public synchronized void replaceProblemStatement(StatementPayload payload, Long newVersion) {
+    discardProblemStatement();
+    problemStatementPayload = payload;
+    version = newVersion != null ? newVersion : version + 1;
+  }
+
+  /**
+   * Drops the stored problem statement and releases its payload.
+   */
+  public synchronized void discardProblemStatement() {
+    if (problemStatementPayload != null) {
+      problemStatementPayload.release();
+      problemStatementPayload = null;
+    }
+    problemStatement = null;
+    spatialIndex = null;
+  }
+
+  /**
+   * Drops everything the session holds, when the session itself is dropped.
+   */
+  public synchronized void discard() {
+    discardProblemStatement();
+    if (lastResultStatement != null) {
+      lastResultStatement.release();
+      lastResultStatement = null;
+    }
+    lastResult = null;
+  }
+
+  /**
+   * Applies a JSON Patch to the stored problem statement.
+   * A failing patch discards the statement so the client has to upload it in full again.
+   *
+   * @param patch The JSON Patch array.
+   * @param baseVersion The version the patch was computed against, or null to skip the check.
+   * @param newVersion The version after the patch, or null to increment the current one.
+   * @return The version of the patched statement.
+   */
+  public synchronized long applyPatch(JsonNode patch, Long baseVersion, Long newVersion) {
+    if (!hasProblemStatement()) {
+      throw new IllegalStateException("No problem statement stored for session " + id);
+    }
+    if (baseVersion != null && baseVersion != version) {
+      throw new IllegalStateException("Patch base version " + baseVersion + " does not match stored version " + version);
+    }
+
+    try {
+      problemStatement = JsonPatch.apply(getProblemStatementTree(), patch);
+    } catch (RuntimeException e) {
+      discardProblemStatement();
+      throw e;
+    }
+    spatialIndex = null;
+    version = newVersion != null ? newVersion : version + 1;
+    return version;
+  }
+
+  /**
+   * Returns the stored problem statement for the solver, retained for the caller.
+   */
+  public synchronized StatementPayload getProblemStatementPayload() {
+    if (problemStatementPayload != null) {
+      return problemStatementPayload.retain();
+    }
+    if (problemStatement == null) {
+      throw new IllegalStateException("No problem statement stored for session " + id);
+    }
+    return StatementPayload.of(problemStatement.toString());
+  }
+
+  /**
+   * Parses the uploaded payload into a tree the first time the statement is patched.
+   */
+  private JsonNode getProblemStatementTree() {
+    if (problemStatement == null) {
+      try (Reader reader = problemStatementPayload.openReader()) {
+        problemStatement = Helper.getObjectMapper().readTree(reader);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Failed to read stored problem statement", e);
+      }
+      problemStatementPayload.release();
+      problemStatementPayload = null;
+    }
+    return problemStatement;
+  }
+
+  public synchronized JsonNode getLastResult() {
+    return lastResult;
+  }
+
+  public synchronized long getResultVersion() {
+    return resultVersion;
+  }
+
+  /**
+   * Returns the statement the last result was solved from, retained for the caller, or null if there is no result.
+   */
+  public synchronized StatementPayload getLastResultStatement() {
+    return lastResultStatement == null ? null : lastResultStatement.retain();
+  }
+
+  /**
+   * Remembers a solver response so the next one can be sent as a delta against it, and the statement
+   * it was solved from so a warm start can tell which of its assignments an edit invalidated.
+   *
+   * @param result The solver response.
+   * @param statement The statement solved, retained by the session until the next result replaces it.
+   * @return The version assigned to this response.
+   */
+  public synchronized long recordResult(JsonNode result, StatementPayload statement) {
+    if (lastResultStatement != null) {
+      lastResultStatement.release();
+    }
+    lastResult = result;
+    lastResultStatement = statement.retain();
+    spatialIndex = null;
+    return ++resultVersion;
+  }
+
+  /**
+   * Returns the spatial index over the stored statement and last result, building it on first use
+   * after either changed.
+   */
+  public synchronized GridSpatialIndex getSpatialIndex() throws IOException {
+    if (!hasProblemStatement()) {
+      throw new IllegalStateException("No problem statement stored for session " + id);
+    }
+    if (spatialIndex == null) {
+      ObjectMapper mapper = Helper.getObjectMapper();
+      JsonParser parser = problemStatement != null
+          ? problemStatement.traverse(mapper)
+          : mapper.getFactory().createParser(problemStatementPayload.openReader());
+      spatialIndex = SpatialIndexBuilder.build(parser, lastResult, mapper,
+          ApplicationProperties.SPATIAL_BUCKET_SIZE.getIntValue());
+    }
+    return spatialIndex;
+  }
+
+  public synchronized Map<String, String> getConfigs() {
+    return configs;
+  }
+
+  public synchronized void setConfigs(Map<String, String> configs) {
+    this.configs = configs;
+  }
+}
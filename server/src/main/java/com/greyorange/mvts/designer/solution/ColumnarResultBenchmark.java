@@ -0,0 +1,158 @@
+package com.greyorange.mvts.designer.solution;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.greyorange.multifleetplanner.helpers.Helper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Checks that {@link ColumnarResultCodec} round-trips a scheduler response byte for byte, and measures
+ * its size and speed against plain JSON.
+ *
+ * The response is built from the UI's assignment template with the given number of assignments, seeded
+ * so every run builds the same one, with epoch-millisecond or ISO-8601 times. Given an output directory,
+ * the plain and encoded responses are written there as plain.json and enc.json, for the UI decoder's check
+ * in scripts/columnarRoundTrip.mjs. Exits with status 1 if the decoded response differs from the original.
+ *
+ * Usage: ColumnarResultBenchmark [assignments] [epoch|iso] [output directory] [assignment template]
+ */
+public final class ColumnarResultBenchmark {
+
+  private static final String DEFAULT_TEMPLATE = "../ui/mvts-problem-statement-generator/public/templates/assignment.json";
+  private static final String[] STATUSES = {"going_to_pick_entity", "to_be_assigned", "going_to_pps"};
+  private static final DateTimeFormatter ISO_MILLIS = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+  private static final int RUNS = 9;
+
+  private ColumnarResultBenchmark() {
+  }
+
+  public static void main(String[] args) throws IOException {
+    int assignments = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+    boolean isoTimes = args.length > 1 && args[1].equals("iso");
+    Path outputDir = args.length > 2 ? Path.of(args[2]) : null;
+    Path template = Path.of(args.length > 3 ? args[3] : DEFAULT_TEMPLATE);
+
+    ObjectMapper mapper = Helper.getObjectMapper();
+    ObjectNode result = buildResult(mapper, mapper.readTree(template.toFile()), assignments, isoTimes);
+    String plain = mapper.writeValueAsString(result);
+    String encoded = mapper.writeValueAsString(ColumnarResultCodec.encode(result));
+    String decoded = mapper.writeValueAsString(ColumnarResultCodec.decode(mapper.readTree(encoded)));
+    boolean identical = plain.equals(decoded);
+
+    System.out.println(assignments + " assignments with " + (isoTimes ? "ISO-8601" : "epoch") + " times");
+    System.out.println("Round trip byte-identical: " + identical);
+    System.out.printf("Plain JSON %.2f MB (gzip %.2f MB), columnar %.2f MB (gzip %.2f MB)%n",
+        megabytes(plain.length()), megabytes(gzipSize(plain)), megabytes(encoded.length()), megabytes(gzipSize(encoded)));
+
+    long[] parsePlain = new long[RUNS];
+    long[] parseDecode = new long[RUNS];
+    long[] encode = new long[RUNS];
+    for (int run = 0; run < RUNS; run++) {
+      long start = System.nanoTime();
+      mapper.readTree(plain);
+      long parsed = System.nanoTime();
+      ColumnarResultCodec.decode(mapper.readTree(encoded));
+      long decodedAt = System.nanoTime();
+      ColumnarResultCodec.encode(result);
+      long encodedAt = System.nanoTime();
+      parsePlain[run] = parsed - start;
+      parseDecode[run] = decodedAt - parsed;
+      encode[run] = encodedAt - decodedAt;
+    }
+    System.out.printf("Median of %d runs: parse plain %.1f ms, parse and decode columnar %.1f ms, encode %.1f ms%n",
+        RUNS, medianMillis(parsePlain), medianMillis(parseDecode), medianMillis(encode));
+
+    if (outputDir != null) {
+      Files.createDirectories(outputDir);
+      Files.writeString(outputDir.resolve("plain.json"), plain);
+      Files.writeString(outputDir.resolve("enc.json"), encoded);
+      System.out.println("Wrote plain.json and enc.json to " + outputDir);
+    }
+    if (!identical) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Builds a response whose assignments vary the fields the codec encodes differently: repeating and
+   * unique strings, ids, increasing times, optional and nested fields, and lists of varying length.
+   */
+  private static ObjectNode buildResult(ObjectMapper mapper, JsonNode template, int count, boolean isoTimes) {
+    Random random = new Random(1);
+    ObjectNode result = mapper.createObjectNode();
+    result.put("request_id", "PSG");
+    ObjectNode schedule = result.putObject("schedule");
+    schedule.put("cost", 123.5);
+    ArrayNode assignments = schedule.putArray("assignments");
+
+    long time = 1_700_000_000_000L;
+    for (int i = 0; i < count; i++) {
+      ObjectNode assignment = template.deepCopy();
+      time += random.nextInt(5000);
+      long start = time;
+      long end = time + 20_000 + random.nextInt(60_000);
+      if (isoTimes) {
+        assignment.put("startTime", OffsetDateTime.ofInstant(Instant.ofEpochMilli(start), ZoneOffset.UTC).format(ISO_MILLIS));
+        assignment.put("endTime", OffsetDateTime.ofInstant(Instant.ofEpochMilli(end), ZoneOffset.ofHours(5)).format(ISO_MILLIS));
+      } else {
+        assignment.put("startTime", start);
+        assignment.put("endTime", end);
+      }
+      assignment.put("task_key", "task_" + i);
+      assignment.put("assigned_ranger_id", random.nextInt(200));
+      assignment.put("transport_entity_id", String.valueOf(random.nextInt(20_000)));
+      assignment.put("dock_pps_id", random.nextInt(40));
+      assignment.put("task_status", STATUSES[random.nextInt(STATUSES.length)]);
+      assignment.put("ranger_group_task_key", "rgt" + (i / 3));
+      assignment.put("ranger_start_time", start - 1000);
+      assignment.put("ranger_available_start_time", start - 2000);
+      if (i % 7 == 0) {
+        assignment.set("ranger_dock_coordinate", mapper.createArrayNode().add(random.nextInt(100)).add(random.nextInt(100)));
+      }
+      JsonNode orders = assignment.get("serviced_orders");
+      if (orders instanceof ArrayNode && orders.size() > 0 && orders.get(0).isObject()) {
+        ((ObjectNode) orders.get(0)).put("order_id", "order_" + (i / 2));
+        if (i % 5 == 0) {
+          ((ArrayNode) orders).add(orders.get(0).deepCopy());
+        }
+      }
+      if (i % 11 == 0) {
+        assignment.remove("is_reordered");
+      }
+      assignments.add(assignment);
+    }
+    return result;
+  }
+
+  private static int gzipSize(String json) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+      gzip.write(json.getBytes(StandardCharsets.UTF_8));
+    }
+    return bytes.size();
+  }
+
+  private static double megabytes(long bytes) {
+    return bytes / 1e6;
+  }
+
+  private static double medianMillis(long[] nanos) {
+    long[] sorted = nanos.clone();
+    Arrays.sort(sorted);
+    return sorted[sorted.length / 2] / 1e6;
+  }
+}
@@ -0,0 +1,440 @@
+package com.greyorange.mvts.designer.solution;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes the assignment list of a scheduler response column by column.
+ *
+ * The assignments become a table: the field names once, the distinct field orders ("layouts")
+ * once, and one column per field holding only the rows that have it. Each column picks the
+ * smallest of a few encodings: strings are dictionary-coded when they repeat (msu ids, group keys,
+ * enums), integers and ISO-8601 timestamps are delta-coded when that is shorter, booleans become a
+ * "0101" string and nulls mixed with other values become a mask. Nested objects (aisle_info) are
+ * tables of their own and nested lists (serviced_orders, serviced_bins, coordinates) are a length
+ * column plus one column of all items.
+ * Anything else is kept as is, so decoding gives back the same JSON, field order included.
+ *
+ * The envelope (cost, request_id, summary, ...) is left untouched and the assignment list is
+ * replaced by {"encoding": "columnar-v1", "table": {...}}.
+ */
+public final class ColumnarResultCodec {
+
+  public static final String ENCODING = "columnar-v1";
+
+  private static final DateTimeFormatter ISO_MILLIS = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+  private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+  private ColumnarResultCodec() {
+  }
+
+  /**
+   * Returns a copy of the response with schedule.assignments encoded, or the response itself
+   * if it has no assignment list.
+   */
+  public static JsonNode encode(JsonNode result) {
+    JsonNode assignments = result.path("schedule").path("assignments");
+    if (!assignments.isArray()) {
+      return result;
+    }
+    ObjectNode wrapper = NODES.objectNode();
+    wrapper.put("encoding", ENCODING);
+    wrapper.set("table", encodeTable(toList(assignments)));
+    return withAssignments(result, wrapper);
+  }
+
+  /**
+   * Reverses {@link #encode}, returning the response unchanged if its assignments are not encoded.
+   */
+  public static JsonNode decode(JsonNode encoded) {
+    JsonNode assignments = encoded.path("schedule").path("assignments");
+    if (!assignments.isObject() || !ENCODING.equals(assignments.path("encoding").asText())) {
+      return encoded;
+    }
+    ArrayNode rows = NODES.arrayNode();
+    rows.addAll(decodeTable(assignments.get("table")));
+    return withAssignments(encoded, rows);
+  }
+
+  /**
+   * Returns a shallow copy of the response and its schedule with the assignments replaced,
+   * sharing every other node instead of copying the whole tree.
+   */
+  private static ObjectNode withAssignments(JsonNode result, JsonNode assignments) {
+    ObjectNode copy = ((ObjectNode) result).objectNode();
+    copy.setAll((ObjectNode) result);
+    ObjectNode schedule = NODES.objectNode();
+    schedule.setAll((ObjectNode) result.get("schedule"));
+    schedule.set("assignments", assignments);
+    copy.set("schedule", schedule);
+    return copy;
+  }
+
+  // Encoding
+
+  private static ObjectNode encodeTable(List<JsonNode> rows) {
+    List<String> keys = new ArrayList<>();
+    Map<String, Integer> keyIndex = new LinkedHashMap<>();
+    Map<String, Integer> layoutIndex = new LinkedHashMap<>();
+    List<List<Integer>> layouts = new ArrayList<>();
+    List<Long> rowLayouts = new ArrayList<>(rows.size());
+    List<List<JsonNode>> cells = new ArrayList<>();
+
+    for (JsonNode row : rows) {
+      List<Integer> layout = new ArrayList<>();
+      for (Iterator<Map.Entry<String, JsonNode>> it = row.fields(); it.hasNext(); ) {
+        Map.Entry<String, JsonNode> field = it.next();
+        Integer index = keyIndex.get(field.getKey());
+        if (index == null) {
+          index = keys.size();
+          keyIndex.put(field.getKey(), index);
+          keys.add(field.getKey());
+          cells.add(new ArrayList<>());
+        }
+        layout.add(index);
+        cells.get(index).add(field.getValue());
+      }
+      String layoutKey = layout.toString();
+      Integer index = layoutIndex.get(layoutKey);
+      if (index == null) {
+        index = layouts.size();
+        layoutIndex.put(layoutKey, index);
+        layouts.add(layout);
+      }
+      rowLayouts.add((long) index);
+    }
+
+    ObjectNode table = NODES.objectNode();
+    table.put("count", rows.size());
+    ArrayNode keysNode = table.putArray("keys");
+    keys.forEach(keysNode::add);
+    ArrayNode layoutsNode = table.putArray("layouts");
+    for (List<Integer> layout : layouts) {
+      ArrayNode layoutNode = layoutsNode.addArray();
+      layout.forEach(layoutNode::add);
+    }
+    if (layouts.size() > 1) {
+      table.set("layout", encodeInts(rowLayouts));
+    }
+    ArrayNode columns = table.putArray("columns");
+    for (List<JsonNode> column : cells) {
+      columns.add(encodeColumn(column));
+    }
+    return table;
+  }
+
+  private static ObjectNode encodeColumn(List<JsonNode> values) {
+    int nulls = 0;
+    for (JsonNode value : values) {
+      if (value.isNull()) {
+        nulls++;
+      }
+    }
+    if (nulls > 0 && nulls < values.size()) {
+      // Nulls as a mask, so the other values can still use a typed encoding
+      StringBuilder mask = new StringBuilder(values.size());
+      List<JsonNode> present = new ArrayList<>(values.size() - nulls);
+      for (JsonNode value : values) {
+        mask.append(value.isNull() ? '1' : '0');
+        if (!value.isNull()) {
+          present.add(value);
+        }
+      }
+      ObjectNode column = NODES.objectNode();
+      column.put("t", "nullable");
+      column.put("nulls", mask.toString());
+      column.set("values", encodeColumn(present));
+      return column;
+    }
+
+    boolean allNull = true, allBoolean = true, allLong = true, allText = true, allObject = true, allArray = true;
+    for (JsonNode value : values) {
+      allNull &= value.isNull();
+      allBoolean &= value.isBoolean();
+      allLong &= value.isIntegralNumber() && value.canConvertToLong();
+      allText &= value.isTextual();
+      allObject &= value.isObject();
+      allArray &= value.isArray();
+    }
+
+    ObjectNode column = NODES.objectNode();
+    if (allNull) {
+      column.put("t", "null");
+      column.put("n", values.size());
+    } else if (allBoolean) {
+      StringBuilder bits = new StringBuilder(values.size());
+      values.forEach(value -> bits.append(value.booleanValue() ? '1' : '0'));
+      column.put("t", "bool");
+      column.put("v", bits.toString());
+    } else if (allLong) {
+      List<Long> longs = new ArrayList<>(values.size());
+      values.forEach(value -> longs.add(value.longValue()));
+      return encodeInts(longs);
+    } else if (allText) {
+      List<String> texts = new ArrayList<>(values.size());
+      values.forEach(value -> texts.add(value.textValue()));
+      ObjectNode time = encodeTimes(texts);
+      return time != null ? time : encodeStrings(texts);
+    } else if (allObject) {
+      column.put("t", "obj");
+      column.set("table", encodeTable(values));
+    } else if (allArray) {
+      List<Long> lengths = new ArrayList<>(values.size());
+      List<JsonNode> items = new ArrayList<>();
+      for (JsonNode value : values) {
+        lengths.add((long) value.size());
+        value.forEach(items::add);
+      }
+      column.put("t", "list");
+      column.set("len", encodeInts(lengths));
+      column.set("items", encodeColumn(items));
+    } else {
+      column.put("t", "raw");
+      ArrayNode raw = column.putArray("v");
+      values.forEach(raw::add);
+    }
+    return column;
+  }
+
+  /**
+   * Integers as they are or as differences from the previous value, whichever prints shorter.
+   */
+  private static ObjectNode encodeInts(List<Long> values) {
+    ObjectNode column = NODES.objectNode();
+    long rawLength = 0;
+    long deltaLength = 0;
+    long[] deltas = new long[values.size()];
+    boolean deltaFits = true;
+    long previous = 0;
+    for (int i = 0; i < values.size(); i++) {
+      long value = values.get(i);
+      rawLength += printedLength(value);
+      try {
+        deltas[i] = Math.subtractExact(value, previous);
+      } catch (ArithmeticException e) {
+        deltaFits = false;
+      }
+      deltaLength += printedLength(deltas[i]);
+      previous = value;
+    }
+
+    ArrayNode v;
+    if (deltaFits && deltaLength < rawLength) {
+      column.put("t", "delta");
+      v = column.putArray("v");
+      for (long delta : deltas) {
+        v.add(delta);
+      }
+    } else {
+      column.put("t", "int");
+      v = column.putArray("v");
+      values.forEach(v::add);
+    }
+    return column;
+  }
+
+  /**
+   * Strings through a dictionary when that is shorter, e.g. for ids and enum names that repeat.
+   */
+  private static ObjectNode encodeStrings(List<String> values) {
+    Map<String, Integer> dictionary = new LinkedHashMap<>();
+    long rawLength = 0;
+    long indexLength = 0;
+    List<Long> indices = new ArrayList<>(values.size());
+    for (String value : values) {
+      rawLength += value.length() + 3;
+      Integer index = dictionary.computeIfAbsent(value, key -> dictionary.size());
+      indices.add((long) index);
+      indexLength += printedLength(index) + 1;
+    }
+    long dictionaryLength = indexLength;
+    for (String value : dictionary.keySet()) {
+      dictionaryLength += value.length() + 3;
+    }
+
+    ObjectNode column = NODES.objectNode();
+    if (dictionaryLength < rawLength) {
+      column.put("t", "dict");
+      ArrayNode d = column.putArray("d");
+      dictionary.keySet().forEach(d::add);
+      column.set("v", encodeInts(indices));
+    } else {
+      column.put("t", "str");
+      ArrayNode v = column.putArray("v");
+      values.forEach(v::add);
+    }
+    return column;
+  }
+
+  /**
+   * ISO-8601 timestamps with millisecond precision as delta-coded epoch millis plus their offsets.
+   * Returns null unless every value prints back exactly as it was received.
+   */
+  private static ObjectNode encodeTimes(List<String> values) {
+    List<Long> millis = new ArrayList<>(values.size());
+    Map<String, Integer> offsets = new LinkedHashMap<>();
+    List<Long> offsetIndices = new ArrayList<>(values.size());
+    for (String value : values) {
+      // Cheap check first, so ordinary strings are not parsed
+      if (value.length() < 24 || value.charAt(4) != '-' || value.charAt(10) != 'T') {
+        return null;
+      }
+      OffsetDateTime time;
+      try {
+        time = OffsetDateTime.parse(value);
+      } catch (DateTimeParseException e) {
+        return null;
+      }
+      if (!ISO_MILLIS.format(time).equals(value)) {
+        return null;
+      }
+      millis.add(time.toInstant().toEpochMilli());
+      String offset = time.getOffset().getId();
+      int offsetIndex = offsets.computeIfAbsent(offset, key -> offsets.size());
+      offsetIndices.add((long) offsetIndex);
+    }
+
+    ObjectNode column = NODES.objectNode();
+    column.put("t", "time");
+    ArrayNode o = column.putArray("o");
+    offsets.keySet().forEach(o::add);
+    if (offsets.size() > 1) {
+      column.set("oi", encodeInts(offsetIndices));
+    }
+    column.set("v", encodeInts(millis));
+    return column;
+  }
+
+  private static int printedLength(long value) {
+    // Digits, sign and the separating comma
+    return Long.toString(value).length() + 1;
+  }
+
+  // Decoding
+
+  private static List<JsonNode> decodeTable(JsonNode table) {
+    int count = table.get("count").asInt();
+    JsonNode keys = table.get("keys");
+    JsonNode layouts = table.get("layouts");
+    long[] rowLayouts = table.has("layout") ? decodeInts(table.get("layout")) : new long[count];
+
+    List<List<JsonNode>> columns = new ArrayList<>();
+    for (JsonNode column : table.get("columns")) {
+      columns.add(decodeColumn(column));
+    }
+    int[] next = new int[columns.size()];
+
+    List<JsonNode> rows = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      ObjectNode row = NODES.objectNode();
+      for (JsonNode keyIndex : layouts.get((int) rowLayouts[i])) {
+        int k = keyIndex.asInt();
+        row.set(keys.get(k).asText(), columns.get(k).get(next[k]++));
+      }
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  private static List<JsonNode> decodeColumn(JsonNode column) {
+    List<JsonNode> values = new ArrayList<>();
+    switch (column.get("t").asText()) {
+      case "null":
+        for (int i = 0; i < column.get("n").asInt(); i++) {
+          values.add(NODES.nullNode());
+        }
+        break;
+      case "nullable": {
+        List<JsonNode> present = decodeColumn(column.get("values"));
+        int next = 0;
+        for (char bit : column.get("nulls").asText().toCharArray()) {
+          values.add(bit == '1' ? NODES.nullNode() : present.get(next++));
+        }
+        break;
+      }
+      case "bool":
+        for (char bit : column.get("v").asText().toCharArray()) {
+          values.add(NODES.booleanNode(bit == '1'));
+        }
+        break;
+      case "int":
+      case "delta":
+        for (long value : decodeInts(column)) {
+          // Small values come back as ints, as they would from parsing the JSON
+          values.add(value == (int) value ? NODES.numberNode((int) value) : NODES.numberNode(value));
+        }
+        break;
+      case "dict": {
+        JsonNode dictionary = column.get("d");
+        for (long index : decodeInts(column.get("v"))) {
+          values.add(dictionary.get((int) index));
+        }
+        break;
+      }
+      case "time": {
+        JsonNode offsets = column.get("o");
+        long[] millis = decodeInts(column.get("v"));
+        long[] offsetIndices = column.has("oi") ? decodeInts(column.get("oi")) : new long[millis.length];
+        for (int i = 0; i < millis.length; i++) {
+          ZoneOffset offset = ZoneOffset.of(offsets.get((int) offsetIndices[i]).asText());
+          OffsetDateTime time = OffsetDateTime.ofInstant(Instant.ofEpochMilli(millis[i]), offset);
+          values.add(NODES.textNode(ISO_MILLIS.format(time)));
+        }
+        break;
+      }
+      case "obj":
+        values.addAll(decodeTable(column.get("table")));
+        break;
+      case "list": {
+        List<JsonNode> items = decodeColumn(column.get("items"));
+        int next = 0;
+        for (long length : decodeInts(column.get("len"))) {
+          ArrayNode list = NODES.arrayNode();
+          for (int i = 0; i < length; i++) {
+            list.add(items.get(next++));
+          }
+          values.add(list);
+        }
+        break;
+      }
+      case "str":
+      case "raw":
+        column.get("v").forEach(values::add);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown column type " + column.get("t").asText());
+    }
+    return values;
+  }
+
+  private static long[] decodeInts(JsonNode column) {
+    JsonNode v = column.get("v");
+    long[] values = new long[v.size()];
+    boolean delta = "delta".equals(column.get("t").asText());
+    long previous = 0;
+    for (int i = 0; i < values.length; i++) {
+      values[i] = delta ? previous + v.get(i).asLong() : v.get(i).asLong();
+      previous = values[i];
+    }
+    return values;
+  }
+
+  private static List<JsonNode> toList(JsonNode array) {
+    List<JsonNode> list = new ArrayList<>(array.size());
+    array.forEach(list::add);
+    return list;
+  }
+}
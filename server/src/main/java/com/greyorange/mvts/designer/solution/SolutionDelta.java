@@ -0,0 +1,113 @@
+package com.greyorange.mvts.designer.solution;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes a keyed diff between two scheduler responses.
+ *
+ * Assignments are matched by task_key. The delta carries the response without its
+ * assignment list (the envelope), the added and changed assignments in full, and the
+ * keys of the removed ones. The new order is only sent when it differs from the old
+ * order with removals dropped and additions appended.
+ */
+public final class SolutionDelta {
+
+  private static final String TASK_KEY = "task_key";
+
+  private SolutionDelta() {
+  }
+
+  /**
+   * Returns the delta from the previous to the current response, or null when either
+   * response has assignments that cannot be keyed (missing or duplicate task_key).
+   */
+  public static ObjectNode diff(JsonNode previous, JsonNode current) {
+    Map<String, JsonNode> previousByKey = indexByTaskKey(assignmentsOf(previous));
+    ArrayNode currentAssignments = assignmentsOf(current);
+    Map<String, JsonNode> currentByKey = indexByTaskKey(currentAssignments);
+    if (previousByKey == null || currentByKey == null) {
+      return null;
+    }
+
+    JsonNodeFactory factory = JsonNodeFactory.instance;
+    ObjectNode delta = factory.objectNode();
+    delta.set("envelope", envelopeOf(current));
+    ArrayNode added = delta.putArray("added");
+    ArrayNode changed = delta.putArray("changed");
+    ArrayNode removed = delta.putArray("removed");
+
+    List<String> expectedOrder = new ArrayList<>();
+    for (String key : previousByKey.keySet()) {
+      if (currentByKey.containsKey(key)) {
+        expectedOrder.add(key);
+      } else {
+        removed.add(key);
+      }
+    }
+
+    for (Map.Entry<String, JsonNode> entry : currentByKey.entrySet()) {
+      JsonNode before = previousByKey.get(entry.getKey());
+      if (before == null) {
+        added.add(entry.getValue());
+        expectedOrder.add(entry.getKey());
+      } else if (!before.equals(entry.getValue())) {
+        changed.add(entry.getValue());
+      }
+    }
+
+    if (!expectedOrder.equals(new ArrayList<>(currentByKey.keySet()))) {
+      ArrayNode order = delta.putArray("order");
+      currentByKey.keySet().forEach(order::add);
+    }
+    return delta;
+  }
+
+  private static ArrayNode assignmentsOf(JsonNode response) {
+    JsonNode assignments = response == null ? null : response.path("schedule").get("assignments");
+    return assignments != null && assignments.isArray() ? (ArrayNode) assignments : JsonNodeFactory.instance.arrayNode();
+  }
+
+  /**
+   * Indexes assignments by task key keeping their order, or returns null if a key is missing or repeated.
+   */
+  private static Map<String, JsonNode> indexByTaskKey(ArrayNode assignments) {
+    Map<String, JsonNode> byKey = new LinkedHashMap<>(assignments.size() * 2);
+    for (JsonNode assignment : assignments) {
+      JsonNode key = assignment.get(TASK_KEY);
+      if (key == null || !key.isTextual() || byKey.put(key.asText(), assignment) != null) {
+        return null;
+      }
+    }
+    return byKey;
+  }
+
+  /**
+   * Shallow copy of the response with schedule.assignments left out.
+   */
+  private static ObjectNode envelopeOf(JsonNode response) {
+    ObjectNode envelope = JsonNodeFactory.instance.objectNode();
+    for (Iterator<Map.Entry<String, JsonNode>> it = response.fields(); it.hasNext(); ) {
+      Map.Entry<String, JsonNode> field = it.next();
+      if ("schedule".equals(field.getKey()) && field.getValue().isObject()) {
+        ObjectNode schedule = envelope.putObject("schedule");
+        field.getValue().fields().forEachRemaining(scheduleField -> {
+          if (!"assignments".equals(scheduleField.getKey())) {
+            schedule.set(scheduleField.getKey(), scheduleField.getValue());
+          }
+        });
+      } else {
+        envelope.set(field.getKey(), field.getValue());
+      }
+    }
+    return envelope;
+  }
+}
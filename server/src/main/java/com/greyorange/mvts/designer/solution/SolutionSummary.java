@@ -0,0 +1,315 @@
+package com.greyorange.mvts.designer.solution;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.greyorange.mvts.designer.ingest.StatementPayload;
+import com.greyorange.mvts.designer.properties.ApplicationProperties;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Computes the analytics shown on the results page, so the browser does not have to walk
+ * every assignment of a large solution.
+ *
+ * The problem statement is streamed once for the bot, PPS and task ids, so idle bots and
+ * unassigned tasks are reported too, and the assignments are then read in a single pass.
+ * Only the per-PPS peak queue needs a sort of that PPS's own intervals.
+ */
+public final class SolutionSummary {
+
+  private static final int MAX_LISTED_UNASSIGNED = 100;
+
+  private SolutionSummary() {
+  }
+
+  /**
+   * Returns the summary block for a scheduler response.
+   *
+   * @param result The scheduler response.
+   * @param statement The problem statement that was solved, or null to summarize the assignments only.
+   * @param factory The factory used to stream the statement.
+   */
+  public static ObjectNode compute(JsonNode result, StatementPayload statement, JsonFactory factory) throws IOException {
+    Map<String, EntityStats> bots = new LinkedHashMap<>();
+    Map<String, EntityStats> ppsList = new LinkedHashMap<>();
+    Set<String> taskKeys = new LinkedHashSet<>();
+    if (statement != null) {
+      readStatementIds(statement, factory, bots, ppsList, taskKeys);
+    }
+
+    Map<String, Integer> msuTrips = new LinkedHashMap<>();
+    Map<String, Integer> taskTypes = new TreeMap<>();
+    Set<String> assignedKeys = new HashSet<>();
+    long scheduleStart = Long.MAX_VALUE;
+    long scheduleEnd = Long.MIN_VALUE;
+    int assignmentCount = 0;
+
+    for (JsonNode assignment : result.path("schedule").path("assignments")) {
+      assignmentCount++;
+      Long start = readTime(assignment, "startTime", "operator_start_time");
+      Long end = readTime(assignment, "endTime", "operator_end_time");
+      boolean timed = start != null && end != null && end >= start;
+      if (timed) {
+        scheduleStart = Math.min(scheduleStart, start);
+        scheduleEnd = Math.max(scheduleEnd, end);
+      }
+
+      String botId = readId(assignment.get("assigned_ranger_id"));
+      if (botId != null) {
+        bots.computeIfAbsent(botId, id -> new EntityStats()).add(timed, start, end, false);
+      }
+      String ppsId = readId(assignment.get("dock_pps_id"));
+      if (ppsId != null) {
+        ppsList.computeIfAbsent(ppsId, id -> new EntityStats()).add(timed, start, end, true);
+      }
+      String msuId = readId(assignment.get("transport_entity_id"));
+      if (msuId != null) {
+        msuTrips.merge(msuId, 1, Integer::sum);
+      }
+      taskTypes.merge(assignment.path("task_type").asText("UNKNOWN"), 1, Integer::sum);
+      String taskKey = readId(assignment.get("task_key"));
+      if (taskKey != null) {
+        assignedKeys.add(taskKey);
+      }
+    }
+
+    JsonNodeFactory nodes = JsonNodeFactory.instance;
+    ObjectNode summary = nodes.objectNode();
+    long makespan = scheduleEnd >= scheduleStart ? scheduleEnd - scheduleStart : 0;
+    summary.put("assignments", assignmentCount);
+    summary.put("tasks", statement != null ? taskKeys.size() : assignedKeys.size());
+    if (scheduleEnd >= scheduleStart) {
+      summary.put("start_ms", scheduleStart);
+      summary.put("end_ms", scheduleEnd);
+    }
+    summary.put("makespan_ms", makespan);
+
+    ArrayNode botSummaries = summary.putArray("bots");
+    for (Map.Entry<String, EntityStats> entry : bots.entrySet()) {
+      EntityStats stats = entry.getValue();
+      botSummaries.addObject()
+          .put("id", entry.getKey())
+          .put("tasks", stats.tasks)
+          .put("busy_ms", stats.busyMillis)
+          .put("utilisation", makespan > 0 ? Math.round(stats.busyMillis * 1000.0 / makespan) / 1000.0 : 0);
+    }
+
+    ArrayNode ppsSummaries = summary.putArray("pps");
+    for (Map.Entry<String, EntityStats> entry : ppsList.entrySet()) {
+      EntityStats stats = entry.getValue();
+      ppsSummaries.addObject()
+          .put("id", entry.getKey())
+          .put("tasks", stats.tasks)
+          .put("busy_ms", stats.busyMillis)
+          .put("peak_queue", stats.peakConcurrency());
+    }
+
+    // Trips per MSU as a histogram: how many MSUs were moved once, twice, ...
+    ObjectNode trips = summary.putObject("msu_trips");
+    Map<Integer, Integer> tripHistogram = new TreeMap<>();
+    int maxTrips = 0;
+    for (int count : msuTrips.values()) {
+      tripHistogram.merge(count, 1, Integer::sum);
+      maxTrips = Math.max(maxTrips, count);
+    }
+    trips.put("total", msuTrips.values().stream().mapToInt(Integer::intValue).sum());
+    trips.put("distinct", msuTrips.size());
+    trips.put("max", maxTrips);
+    ObjectNode histogram = trips.putObject("histogram");
+    tripHistogram.forEach((count, msus) -> histogram.put(String.valueOf(count), msus));
+
+    ObjectNode types = summary.putObject("task_types");
+    taskTypes.forEach(types::put);
+
+    ObjectNode unassigned = summary.putObject("unassigned");
+    ArrayNode unassignedKeys = nodes.arrayNode();
+    int unassignedCount = 0;
+    for (String taskKey : taskKeys) {
+      if (!assignedKeys.contains(taskKey)) {
+        if (unassignedCount++ < MAX_LISTED_UNASSIGNED) {
+          unassignedKeys.add(taskKey);
+        }
+      }
+    }
+    unassigned.put("count", unassignedCount);
+    unassigned.set("task_keys", unassignedKeys);
+    return summary;
+  }
+
+  /**
+   * Returns the planner's cost block, from the schedule or the top level of the response, or null if it has none.
+   */
+  public static JsonNode readObjective(JsonNode result) {
+    JsonNode cost = result.path("schedule").has("cost") ? result.path("schedule").get("cost") : result.get("cost");
+    return cost == null || cost.isNull() ? null : cost;
+  }
+
+  /**
+   * Returns the one number solves are compared by: the planner's cost when it is a number, otherwise its
+   * OBJECTIVE_COST_FIELD component. Null if the response has no such number, since the other components
+   * measure different things and are not added up.
+   */
+  public static Double readObjectiveValue(JsonNode result) {
+    JsonNode cost = readObjective(result);
+    if (cost == null) {
+      return null;
+    }
+    if (!cost.isNumber()) {
+      String field = ApplicationProperties.OBJECTIVE_COST_FIELD.getValue();
+      cost = field.isEmpty() ? null : cost.get(field);
+    }
+    return cost != null && cost.isNumber() ? cost.asDouble() : null;
+  }
+
+  /**
+   * Names the number {@link #readObjectiveValue} reads, for messages.
+   */
+  public static String describeObjective() {
+    String field = ApplicationProperties.OBJECTIVE_COST_FIELD.getValue();
+    return field.isEmpty() ? "cost" : "cost." + field;
+  }
+
+  /**
+   * True if objective value a is at least as good as b, lower being better unless OBJECTIVE_LOWER_IS_BETTER is false.
+   */
+  public static boolean isAtLeastAsGood(double a, double b) {
+    return Boolean.parseBoolean(ApplicationProperties.OBJECTIVE_LOWER_IS_BETTER.getValue()) ? a <= b : a >= b;
+  }
+
+  private static final class EntityStats {
+    int tasks;
+    long busyMillis;
+    List<long[]> intervals;
+
+    void add(boolean timed, Long start, Long end, boolean keepInterval) {
+      tasks++;
+      if (!timed) {
+        return;
+      }
+      busyMillis += end - start;
+      if (keepInterval) {
+        if (intervals == null) {
+          intervals = new ArrayList<>();
+        }
+        intervals.add(new long[]{start, end});
+      }
+    }
+
+    /**
+     * Largest number of assignments overlapping in time, i.e. bots at or queued for the PPS.
+     */
+    int peakConcurrency() {
+      if (intervals == null) {
+        return 0;
+      }
+      long[][] events = new long[intervals.size() * 2][];
+      int i = 0;
+      for (long[] interval : intervals) {
+        events[i++] = new long[]{interval[0], 1};
+        events[i++] = new long[]{interval[1], -1};
+      }
+      // Ends sort before starts at the same instant, so back-to-back assignments do not overlap
+      Arrays.sort(events, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+      int current = 0;
+      int peak = 0;
+      for (long[] event : events) {
+        current += (int) event[1];
+        peak = Math.max(peak, current);
+      }
+      return peak;
+    }
+  }
+
+  private static void readStatementIds(StatementPayload statement, JsonFactory factory, Map<String, EntityStats> bots,
+                                       Map<String, EntityStats> ppsList, Set<String> taskKeys) throws IOException {
+    try (JsonParser parser = factory.createParser(statement.openReader())) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return;
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        parser.nextToken();
+        switch (field) {
+          case "ranger_list":
+            readListIds(parser, "id", id -> bots.putIfAbsent(id, new EntityStats()));
+            break;
+          case "pps_list":
+            readListIds(parser, "id", id -> ppsList.putIfAbsent(id, new EntityStats()));
+            break;
+          case "task_list":
+            readListIds(parser, "task_key", taskKeys::add);
+            break;
+          default:
+            parser.skipChildren();
+        }
+      }
+    }
+  }
+
+  private interface IdConsumer {
+    void accept(String id);
+  }
+
+  private static void readListIds(JsonParser parser, String idField, IdConsumer consumer) throws IOException {
+    if (parser.currentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      return;
+    }
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      if (parser.currentToken() != JsonToken.START_OBJECT) {
+        parser.skipChildren();
+        continue;
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken token = parser.nextToken();
+        if (idField.equals(field) && (token == JsonToken.VALUE_STRING || token == JsonToken.VALUE_NUMBER_INT)) {
+          consumer.accept(parser.getText());
+        } else {
+          parser.skipChildren();
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads an id as text so that 1 and "1" refer to the same entity.
+   */
+  private static String readId(JsonNode id) {
+    return id != null && (id.isTextual() || id.isIntegralNumber()) ? id.asText() : null;
+  }
+
+  /**
+   * Reads a time as epoch millis from the first field present, accepting numbers and ISO-8601 strings.
+   */
+  private static Long readTime(JsonNode assignment, String field, String fallbackField) {
+    JsonNode time = assignment.hasNonNull(field) ? assignment.get(field) : assignment.get(fallbackField);
+    if (time == null || time.isNull()) {
+      return null;
+    }
+    if (time.isNumber()) {
+      return time.asLong();
+    }
+    try {
+      return OffsetDateTime.parse(time.asText()).toInstant().toEpochMilli();
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+}
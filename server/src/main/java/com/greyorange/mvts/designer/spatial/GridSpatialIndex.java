@@ -0,0 +1,143 @@
+package com.greyorange.mvts.designer.spatial;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Uniform grid of buckets over warehouse coordinates.
+ *
+ * Each entity is stored in the bucket covering its cell, so a viewport query only visits the
+ * buckets it overlaps instead of every entity. Buckets are created on demand, which keeps
+ * sparse layouts cheap.
+ */
+public class GridSpatialIndex {
+
+  public enum Kind {
+    BOT("bots"), PPS("pps"), MSU("msus"), TASK("tasks"), ASSIGNMENT("assignments");
+
+    private final String field;
+
+    Kind(String field) {
+      this.field = field;
+    }
+
+    /**
+     * Name of the list this kind is returned in.
+     */
+    public String getField() {
+      return field;
+    }
+  }
+
+  public static final class Entry {
+    private final Kind kind;
+    private final int x;
+    private final int y;
+    private final JsonNode node;
+
+    Entry(Kind kind, int x, int y, JsonNode node) {
+      this.kind = kind;
+      this.x = x;
+      this.y = y;
+      this.node = node;
+    }
+
+    public Kind getKind() {
+      return kind;
+    }
+
+    public int getX() {
+      return x;
+    }
+
+    public int getY() {
+      return y;
+    }
+
+    public JsonNode getNode() {
+      return node;
+    }
+  }
+
+  public interface Visitor {
+    /**
+     * @return false to stop the query.
+     */
+    boolean visit(Entry entry);
+  }
+
+  private final int bucketSize;
+  private final Map<Long, List<Entry>> buckets = new HashMap<>();
+  private int size;
+
+  public GridSpatialIndex(int bucketSize) {
+    this.bucketSize = Math.max(1, bucketSize);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public void add(Kind kind, int x, int y, JsonNode node) {
+    buckets.computeIfAbsent(key(bucketOf(x), bucketOf(y)), k -> new ArrayList<>()).add(new Entry(kind, x, y, node));
+    size++;
+  }
+
+  /**
+   * Visits the entities of the given kinds inside the inclusive rectangle [x0, x1] x [y0, y1].
+   */
+  public void query(int x0, int y0, int x1, int y1, Set<Kind> kinds, Visitor visitor) {
+    int minX = Math.min(x0, x1);
+    int maxX = Math.max(x0, x1);
+    int minY = Math.min(y0, y1);
+    int maxY = Math.max(y0, y1);
+    int bx0 = bucketOf(minX);
+    int bx1 = bucketOf(maxX);
+    int by0 = bucketOf(minY);
+    int by1 = bucketOf(maxY);
+
+    // A viewport spanning more buckets than exist is cheaper to answer by scanning the occupied ones
+    long spanned = (long) (bx1 - bx0 + 1) * (by1 - by0 + 1);
+    if (spanned > buckets.size()) {
+      for (List<Entry> bucket : buckets.values()) {
+        if (!visitBucket(bucket, minX, minY, maxX, maxY, kinds, visitor)) {
+          return;
+        }
+      }
+      return;
+    }
+
+    for (int bx = bx0; bx <= bx1; bx++) {
+      for (int by = by0; by <= by1; by++) {
+        List<Entry> bucket = buckets.get(key(bx, by));
+        if (bucket != null && !visitBucket(bucket, minX, minY, maxX, maxY, kinds, visitor)) {
+          return;
+        }
+      }
+    }
+  }
+
+  private static boolean visitBucket(List<Entry> bucket, int minX, int minY, int maxX, int maxY, Set<Kind> kinds,
+                                     Visitor visitor) {
+    for (Entry entry : bucket) {
+      if (kinds.contains(entry.kind) && entry.x >= minX && entry.x <= maxX && entry.y >= minY && entry.y <= maxY
+          && !visitor.visit(entry)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int bucketOf(int coordinate) {
+    return Math.floorDiv(coordinate, bucketSize);
+  }
+
+  private static long key(int bx, int by) {
+    return ((long) bx << 32) | (by & 0xffffffffL);
+  }
+}
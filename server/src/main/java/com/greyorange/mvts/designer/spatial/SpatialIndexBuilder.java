@@ -0,0 +1,121 @@
+package com.greyorange.mvts.designer.spatial;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.greyorange.mvts.designer.spatial.GridSpatialIndex.Kind;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a {@link GridSpatialIndex} from a problem statement and, if there is one, its last solution.
+ *
+ * Bots, PPS and MSUs are placed at their coordinate. Tasks have no position of their own on the grid,
+ * so they are placed at their MSU, or at their destination if the MSU is unknown; assignments are placed
+ * where their task is. The statement is streamed element by element, and only the elements are kept.
+ */
+public final class SpatialIndexBuilder {
+
+  private SpatialIndexBuilder() {
+  }
+
+  public static GridSpatialIndex build(JsonParser statement, JsonNode result, ObjectMapper mapper, int bucketSize)
+      throws IOException {
+    GridSpatialIndex index = new GridSpatialIndex(bucketSize);
+    Map<String, int[]> msuCoordinates = new HashMap<>();
+    List<JsonNode> tasks = new ArrayList<>();
+
+    try (JsonParser parser = statement) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return index;
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        parser.nextToken();
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+          parser.skipChildren();
+          continue;
+        }
+        switch (field) {
+          case "ranger_list":
+            readElements(parser, mapper, element -> addAt(index, Kind.BOT, coordinateOf(element, "coordinate"), element));
+            break;
+          case "pps_list":
+            readElements(parser, mapper, element -> addAt(index, Kind.PPS, coordinateOf(element, "coordinate"), element));
+            break;
+          case "transport_entity_list":
+            readElements(parser, mapper, element -> {
+              int[] coordinate = coordinateOf(element, "coordinate");
+              if (coordinate != null && element.hasNonNull("id")) {
+                msuCoordinates.put(element.get("id").asText(), coordinate);
+              }
+              addAt(index, Kind.MSU, coordinate, element);
+            });
+            break;
+          case "task_list":
+            // Placed once all MSUs are known, since the lists may come in any order
+            readElements(parser, mapper, tasks::add);
+            break;
+          default:
+            parser.skipChildren();
+        }
+      }
+    }
+
+    Map<String, int[]> taskCoordinates = new HashMap<>();
+    for (JsonNode task : tasks) {
+      int[] coordinate = msuCoordinates.get(task.path("transport_entity_id").asText(null));
+      if (coordinate == null) {
+        coordinate = coordinateOf(task, "destination");
+      }
+      if (coordinate != null && task.hasNonNull("task_key")) {
+        taskCoordinates.put(task.get("task_key").asText(), coordinate);
+      }
+      addAt(index, Kind.TASK, coordinate, task);
+    }
+
+    if (result != null) {
+      for (JsonNode assignment : result.path("schedule").path("assignments")) {
+        int[] coordinate = taskCoordinates.get(assignment.path("task_key").asText(null));
+        if (coordinate == null) {
+          coordinate = msuCoordinates.get(assignment.path("transport_entity_id").asText(null));
+        }
+        addAt(index, Kind.ASSIGNMENT, coordinate, assignment);
+      }
+    }
+    return index;
+  }
+
+  private interface ElementConsumer {
+    void accept(JsonNode element);
+  }
+
+  private static void readElements(JsonParser parser, ObjectMapper mapper, ElementConsumer consumer) throws IOException {
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      if (parser.currentToken() == JsonToken.START_OBJECT) {
+        consumer.accept(mapper.readTree(parser));
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+  private static void addAt(GridSpatialIndex index, Kind kind, int[] coordinate, JsonNode element) {
+    if (coordinate != null) {
+      index.add(kind, coordinate[0], coordinate[1], element);
+    }
+  }
+
+  private static int[] coordinateOf(JsonNode element, String field) {
+    JsonNode coordinate = element.get(field);
+    if (coordinate == null || !coordinate.path("x").canConvertToInt() || !coordinate.path("y").canConvertToInt()) {
+      return null;
+    }
+    return new int[]{coordinate.get("x").asInt(), coordinate.get("y").asInt()};
+  }
+}
@@ -0,0 +1,127 @@
+package com.greyorange.mvts.designer.subscription;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * The progress and result frames of one solve, published to every session subscribed to it.
+ * The result frame is kept once the solve finishes, so a late subscriber still receives it.
+ * Any session may watch a solve, but only the one that submitted it may cancel it.
+ */
+public class JobChannel {
+
+  public enum Status {
+    QUEUED,
+    RUNNING,
+    FINISHED
+  }
+
+  private final String jobId;
+  private final Subscriber submitter;
+  private final Set<Subscriber> subscribers = new CopyOnWriteArraySet<>();
+  private volatile Status status = Status.QUEUED;
+  private volatile String resultFrame;
+  private volatile boolean stoppable;
+  private volatile boolean cancelRequested;
+
+  JobChannel(String jobId, Subscriber submitter) {
+    this.jobId = jobId;
+    this.submitter = submitter;
+  }
+
+  public String getJobId() {
+    return jobId;
+  }
+
+  /**
+   * True if the given subscriber is the session that submitted the solve.
+   */
+  public boolean isSubmittedBy(Subscriber subscriber) {
+    return submitter != null && submitter == subscriber;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  /**
+   * Marks the solve as running, unless it was cancelled while queued.
+   *
+   * @return false if the solve must not run.
+   */
+  public synchronized boolean markRunning() {
+    if (cancelRequested) {
+      return false;
+    }
+    status = Status.RUNNING;
+    return true;
+  }
+
+  /**
+   * Marks a solve that checks {@link #isCancelRequested()} between steps, so it can be stopped while running.
+   */
+  public void setStoppable(boolean stoppable) {
+    this.stoppable = stoppable;
+  }
+
+  /**
+   * Asks the solve to stop: a queued solve will not start, a running stoppable one stops after its current step.
+   *
+   * @return The status the solve had; a running solve that cannot be stopped and a finished one are left alone.
+   */
+  public synchronized Status cancel() {
+    if (status == Status.QUEUED || (status == Status.RUNNING && stoppable)) {
+      cancelRequested = true;
+    }
+    return status;
+  }
+
+  public boolean isCancelRequested() {
+    return cancelRequested;
+  }
+
+  /**
+   * Adds a subscriber, sending it the result straight away if the solve has already finished.
+   */
+  public synchronized void subscribe(Subscriber subscriber) {
+    subscribers.add(subscriber);
+    if (resultFrame != null) {
+      subscriber.send(resultFrame);
+    }
+  }
+
+  public void unsubscribe(Subscriber subscriber) {
+    subscribers.remove(subscriber);
+  }
+
+  /**
+   * Sends the same frame to every subscriber.
+   *
+   * @param frame The encoded frame.
+   * @param droppable True for log lines, which slow subscribers may skip.
+   */
+  public void publish(String frame, boolean droppable) {
+    for (Subscriber subscriber : subscribers) {
+      subscriber.send(frame, droppable, jobId);
+    }
+  }
+
+  /**
+   * Publishes the result frame and keeps it for late subscribers.
+   *
+   * @param frame The result frame for all subscribers.
+   * @param submitter The session that submitted the solve, or null.
+   * @param submitterFrame A frame sent to the submitter instead, e.g. a diff against its previous result, or null.
+   */
+  public synchronized void finish(String frame, Subscriber submitter, String submitterFrame) {
+    resultFrame = frame;
+    status = Status.FINISHED;
+    for (Subscriber subscriber : subscribers) {
+      if (subscriber == submitter && submitterFrame != null) {
+        subscriber.send(submitterFrame);
+      } else {
+        subscriber.send(frame);
+      }
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package com.greyorange.mvts.designer.subscription;
+
+import com.greyorange.mvts.designer.properties.ApplicationProperties;
+import org.eclipse.jetty.websocket.api.Session;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the channel of every queued or running solve, plus the last JOB_CHANNEL_RETAINED finished
+ * ones, and one {@link Subscriber} per connected session.
+ */
+public class JobChannelRegistry {
+
+  private static JobChannelRegistry instance;
+
+  private final int maxPendingFrames;
+  private final int retainedFinished;
+  private final Map<Session, Subscriber> subscribers = new ConcurrentHashMap<>();
+  private final LinkedHashMap<String, JobChannel> channels = new LinkedHashMap<>();
+
+  private JobChannelRegistry() {
+    maxPendingFrames = ApplicationProperties.SUBSCRIBER_MAX_PENDING_FRAMES.getIntValue();
+    retainedFinished = ApplicationProperties.JOB_CHANNEL_RETAINED.getIntValue();
+  }
+
+  public static JobChannelRegistry getInstance() {
+    if (instance == null) {
+      synchronized (JobChannelRegistry.class) {
+        if (instance == null) {
+          instance = new JobChannelRegistry();
+        }
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * Returns the subscriber for a session, creating it on first use.
+   */
+  public Subscriber getSubscriber(Session session) {
+    return subscribers.computeIfAbsent(session, s -> new Subscriber(s, maxPendingFrames));
+  }
+
+  /**
+   * Creates the channel of a newly submitted job.
+   *
+   * @param submitter The session that submitted the job, the only one allowed to cancel it.
+   */
+  public synchronized JobChannel create(String jobId, Subscriber submitter) {
+    evictFinished();
+    JobChannel channel = new JobChannel(jobId, submitter);
+    channels.put(jobId, channel);
+    return channel;
+  }
+
+  /**
+   * Returns the channel of the given job, or null if it is unknown or no longer retained.
+   */
+  public synchronized JobChannel get(String jobId) {
+    return channels.get(jobId);
+  }
+
+  /**
+   * Removes a closed session from every channel it watched.
+   */
+  public void remove(Session session) {
+    Subscriber subscriber = subscribers.remove(session);
+    if (subscriber == null) {
+      return;
+    }
+    subscriber.close();
+    synchronized (this) {
+      for (JobChannel channel : channels.values()) {
+        channel.unsubscribe(subscriber);
+      }
+    }
+  }
+
+  private void evictFinished() {
+    // Channels are in creation order; running ones are never dropped
+    int finished = 0;
+    for (JobChannel channel : channels.values()) {
+      if (channel.getStatus() == JobChannel.Status.FINISHED) {
+        finished++;
+      }
+    }
+    for (Iterator<JobChannel> it = channels.values().iterator(); it.hasNext() && finished >= retainedFinished; ) {
+      if (it.next().getStatus() == JobChannel.Status.FINISHED) {
+        it.remove();
+        finished--;
+      }
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package com.greyorange.mvts.designer.subscription;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.greyorange.multifleetplanner.helpers.Helper;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The outgoing side of one WebSocket session watching solves.
+ *
+ * Frames are sent asynchronously, one at a time, from a queue of our own, so a slow client
+ * never holds up the thread publishing to the other subscribers. Once SUBSCRIBER_MAX_PENDING_FRAMES
+ * frames are waiting, droppable frames (log lines) are skipped and the client is told how many it
+ * missed of which job; status and result frames are always queued.
+ */
+public class Subscriber {
+
+  private final Session session;
+  private final int maxPendingFrames;
+  private final ArrayDeque<String> pending = new ArrayDeque<>();
+  private boolean sending;
+  private boolean closed;
+  // Skipped frames per job id, until the client has been told
+  private final Map<String, Integer> dropped = new LinkedHashMap<>();
+
+  Subscriber(Session session, int maxPendingFrames) {
+    this.session = session;
+    this.maxPendingFrames = maxPendingFrames;
+  }
+
+  public Session getSession() {
+    return session;
+  }
+
+  /**
+   * Queues a frame that is never skipped.
+   */
+  public void send(String frame) {
+    send(frame, false, null);
+  }
+
+  /**
+   * Queues a frame for sending.
+   *
+   * @param frame The frame, shared by all subscribers it is published to.
+   * @param droppable True if the frame may be skipped when the client falls behind.
+   * @param jobId The job the frame belongs to, named in the notice of skipped frames.
+   */
+  public void send(String frame, boolean droppable, String jobId) {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      if (droppable && pending.size() >= maxPendingFrames) {
+        dropped.merge(String.valueOf(jobId), 1, Integer::sum);
+        return;
+      }
+      for (Map.Entry<String, Integer> skipped : dropped.entrySet()) {
+        pending.add(droppedNotice(skipped.getKey(), skipped.getValue()));
+      }
+      dropped.clear();
+      pending.add(frame);
+    }
+    sendNext();
+  }
+
+  synchronized void close() {
+    closed = true;
+    pending.clear();
+  }
+
+  private void sendNext() {
+    String frame;
+    synchronized (this) {
+      if (sending || closed || !session.isOpen()) {
+        return;
+      }
+      frame = pending.poll();
+      if (frame == null) {
+        return;
+      }
+      sending = true;
+    }
+
+    session.getRemote().sendString(frame, new WriteCallback() {
+      @Override
+      public void writeSuccess() {
+        synchronized (Subscriber.this) {
+          sending = false;
+        }
+        sendNext();
+      }
+
+      @Override
+      public void writeFailed(Throwable x) {
+        System.err.println("Error sending to subscriber " + session + ": " + x.getMessage());
+        close();
+      }
+    });
+  }
+
+  private static String droppedNotice(String jobId, int count) {
+    ObjectNode frame = Helper.getObjectMapper().createObjectNode();
+    frame.put("type", "SOLVING_PROBLEM_STATEMENT");
+    frame.putObject("data")
+        .put("log", count + " log lines were skipped because this connection fell behind. Load the full log to see them.")
+        .put("level", "WARN")
+        .put("jobId", jobId)
+        .put("timestamp", System.currentTimeMillis());
+    return frame.toString();
+  }
+}
@@ -0,0 +1,323 @@
+package com.greyorange.mvts.designer.validation;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.greyorange.mvts.designer.pojo.ValidationError;
+import com.greyorange.mvts.designer.properties.ApplicationProperties;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Single-pass streaming check of a problem statement before it is queued for solving.
+ *
+ * Entity ids are collected into hash sets while the token stream is read, and task
+ * references are resolved against them once the whole statement has been seen, so the
+ * order of the lists in the document does not matter. Every error found is reported,
+ * up to VALIDATION_MAX_ERRORS.
+ */
+public class ProblemStatementValidator {
+
+  private static final String[] REQUIRED_LISTS = {"ranger_list", "pps_list", "transport_entity_list", "task_list"};
+
+  private final Integer width;
+  private final Integer height;
+  private final int maxErrors = ApplicationProperties.VALIDATION_MAX_ERRORS.getIntValue();
+  private final List<ValidationError> errors = new ArrayList<>();
+  private boolean truncated;
+
+  private final Set<String> botIds = new HashSet<>();
+  private final Set<String> ppsIds = new HashSet<>();
+  private final Set<String> msuIds = new HashSet<>();
+  private final Set<String> taskKeys = new HashSet<>();
+  private final List<String[]> ppsReferences = new ArrayList<>();
+  private final List<String[]> msuReferences = new ArrayList<>();
+
+  /**
+   * @param width The grid width coordinates must fall within, or null to skip the bounds check.
+   * @param height The grid height coordinates must fall within, or null to skip the bounds check.
+   */
+  public ProblemStatementValidator(Integer width, Integer height) {
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Reads the problem statement from the parser and returns every error found.
+   * An empty list means the statement can be queued.
+   */
+  public List<ValidationError> validate(JsonParser parser) throws IOException {
+    try {
+      readStatement(parser);
+    } catch (JsonProcessingException e) {
+      error("", "malformed JSON: " + e.getOriginalMessage());
+      return errors;
+    }
+
+    for (String[] reference : ppsReferences) {
+      if (!ppsIds.contains(reference[1])) {
+        error(reference[0], "PPS " + reference[1] + " does not exist in pps_list");
+      }
+    }
+    for (String[] reference : msuReferences) {
+      if (!msuIds.contains(reference[1])) {
+        error(reference[0], "MSU " + reference[1] + " does not exist in transport_entity_list");
+      }
+    }
+
+    if (truncated) {
+      errors.add(new ValidationError("", "too many errors, only the first " + maxErrors + " are reported"));
+    }
+    return errors;
+  }
+
+  private void readStatement(JsonParser parser) throws IOException {
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      error("", "problem statement must be a JSON object");
+      return;
+    }
+
+    Set<String> seen = new HashSet<>();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      seen.add(field);
+      String path = "/" + field;
+
+      switch (field) {
+        case "ranger_list":
+          readList(parser, path, this::readBot);
+          break;
+        case "pps_list":
+          readList(parser, path, this::readPps);
+          break;
+        case "transport_entity_list":
+          readList(parser, path, this::readMsu);
+          break;
+        case "task_list":
+          readList(parser, path, this::readTask);
+          break;
+        case "planning_duration_seconds":
+          if (!parser.currentToken().isNumeric() || parser.getValueAsDouble() <= 0) {
+            error(path, "must be a positive number");
+          }
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+
+    for (String list : REQUIRED_LISTS) {
+      if (!seen.contains(list)) {
+        error("/" + list, "is required");
+      }
+    }
+  }
+
+  private interface ElementReader {
+    void read(JsonParser parser, String path) throws IOException;
+  }
+
+  private void readList(JsonParser parser, String path, ElementReader reader) throws IOException {
+    if (parser.currentToken() != JsonToken.START_ARRAY) {
+      error(path, "must be an array");
+      parser.skipChildren();
+      return;
+    }
+
+    int index = 0;
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      String elementPath = path + "/" + index++;
+      if (parser.currentToken() == JsonToken.START_OBJECT) {
+        reader.read(parser, elementPath);
+      } else {
+        error(elementPath, "must be an object");
+        parser.skipChildren();
+      }
+    }
+  }
+
+  private void readBot(JsonParser parser, String path) throws IOException {
+    String id = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      switch (field) {
+        case "id":
+          id = readId(parser, path + "/id");
+          break;
+        case "coordinate":
+        case "available_at_coordinate":
+          readCoordinate(parser, path + "/" + field);
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+    registerId(botIds, id, path, "bot");
+  }
+
+  private void readPps(JsonParser parser, String path) throws IOException {
+    String id = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      switch (field) {
+        case "id":
+          id = readId(parser, path + "/id");
+          break;
+        case "coordinate":
+          readCoordinate(parser, path + "/coordinate");
+          break;
+        case "ranger_dock_coordinates":
+        case "ranger_exit_coordinates":
+          if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            break;
+          }
+          readList(parser, path + "/" + field, this::readDock);
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+    registerId(ppsIds, id, path, "PPS");
+  }
+
+  private void readDock(JsonParser parser, String path) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      if ("coordinate".equals(field)) {
+        readCoordinate(parser, path + "/coordinate");
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+  private void readMsu(JsonParser parser, String path) throws IOException {
+    String id = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      switch (field) {
+        case "id":
+          id = readId(parser, path + "/id");
+          break;
+        case "coordinate":
+          readCoordinate(parser, path + "/coordinate");
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+    registerId(msuIds, id, path, "MSU");
+  }
+
+  private void readTask(JsonParser parser, String path) throws IOException {
+    String taskKey = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      switch (field) {
+        case "task_key":
+          taskKey = readId(parser, path + "/task_key");
+          break;
+        case "destination_id":
+          addReference(ppsReferences, parser, path + "/destination_id");
+          break;
+        case "transport_entity_id":
+          addReference(msuReferences, parser, path + "/transport_entity_id");
+          break;
+        case "destination":
+          readCoordinate(parser, path + "/destination");
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+    if (taskKey == null) {
+      error(path, "task_key is required");
+    } else if (!taskKeys.add(taskKey)) {
+      error(path + "/task_key", "duplicate task_key " + taskKey);
+    }
+  }
+
+  private void addReference(List<String[]> references, JsonParser parser, String path) throws IOException {
+    if (parser.currentToken() == JsonToken.VALUE_NULL) {
+      return;
+    }
+    String id = readId(parser, path);
+    if (id != null) {
+      references.add(new String[]{path, id});
+    }
+  }
+
+  /**
+   * Reads a scalar id as text so that 1 and "1" refer to the same entity.
+   */
+  private String readId(JsonParser parser, String path) throws IOException {
+    JsonToken token = parser.currentToken();
+    if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_STRING) {
+      return parser.getText();
+    }
+    error(path, "must be an integer or a string");
+    parser.skipChildren();
+    return null;
+  }
+
+  private void registerId(Set<String> ids, String id, String path, String entity) {
+    if (id == null) {
+      error(path, entity + " id is required");
+    } else if (!ids.add(id)) {
+      error(path + "/id", "duplicate " + entity + " id " + id);
+    }
+  }
+
+  private void readCoordinate(JsonParser parser, String path) throws IOException {
+    if (parser.currentToken() == JsonToken.VALUE_NULL) {
+      return;
+    }
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      error(path, "must be an object with x and y");
+      parser.skipChildren();
+      return;
+    }
+
+    Long x = null;
+    Long y = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+      if (("x".equals(field) || "y".equals(field)) && token == JsonToken.VALUE_NUMBER_INT) {
+        if ("x".equals(field)) {
+          x = parser.getLongValue();
+        } else {
+          y = parser.getLongValue();
+        }
+      } else {
+        parser.skipChildren();
+      }
+    }
+
+    if (x == null || y == null) {
+      error(path, "must have integer x and y");
+      return;
+    }
+    if ((width != null && (x < 0 || x >= width)) || (height != null && (y < 0 || y >= height))) {
+      error(path, "(" + x + ", " + y + ") is outside the " + width + "x" + height + " grid");
+    }
+  }
+
+  private void error(String path, String message) {
+    if (errors.size() < maxErrors) {
+      errors.add(new ValidationError(path, message));
+    } else {
+      truncated = true;
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package com.greyorange.mvts.designer.warmstart;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.greyorange.multifleetplanner.helpers.Helper;
+import com.greyorange.mvts.designer.anytime.AnytimeSolve;
+import com.greyorange.mvts.designer.cluster.SolverCoordinator;
+import com.greyorange.mvts.designer.solution.SolutionSummary;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Measures how long a cold solve of the same edited statement needs to match a warm-started solve.
+ *
+ * The planner cannot report its objective while it runs, so the unseeded statement is solved with planning
+ * durations of 1, 2, 4, ... seconds and finally its full budget, stopping at the first solve whose objective
+ * (see {@link SolutionSummary#readObjectiveValue}) is at least as good as the warm one's. That solve's time
+ * is the cold time to an equivalent objective. The warm objective only covers the same work if the warm
+ * response still holds every seeded assignment, so no speedup is reported otherwise. The solves only
+ * measure, and keep the solver busy for up to about twice the full budget.
+ */
+public final class ColdBaseline {
+
+  private ColdBaseline() {
+  }
+
+  /**
+   * Runs the cold solves and returns the comparison for the result summary.
+   *
+   * @param inputMessage The edited statement, without the warm start's seeding.
+   * @param warmStart The seeding the warm solve ran with.
+   * @param warmResult The warm-started solve's scheduler response.
+   * @param warmSolveMillis How long the warm-started solve took.
+   * @param configs The flattened config overrides of the solve.
+   * @param progress Told about each cold solve, for the solve log.
+   */
+  public static ObjectNode measure(String inputMessage, WarmStart warmStart, JsonNode warmResult,
+                                   long warmSolveMillis, Map<String, String> configs, Consumer<String> progress)
+      throws IOException {
+    ObjectMapper mapper = Helper.getObjectMapper();
+    double fullPlanningSeconds = warmStart.getFullPlanningSeconds();
+    Double warmObjective = SolutionSummary.readObjectiveValue(warmResult);
+    int seededInResult = warmStart.countSeededIn(warmResult);
+    ObjectNode baseline = mapper.createObjectNode();
+    baseline.put("objective", SolutionSummary.describeObjective());
+    baseline.put("warm_solve_ms", warmSolveMillis);
+    baseline.put("warm_objective", warmObjective);
+    if (warmObjective == null) {
+      baseline.put("error", "The warm solve has no numeric " + SolutionSummary.describeObjective()
+          + " to compare; set OBJECTIVE_COST_FIELD to the cost component to compare by");
+      return baseline;
+    }
+    if (seededInResult < warmStart.getSeededAssignments()) {
+      baseline.put("error", "The warm solve left out " + (warmStart.getSeededAssignments() - seededInResult) + " of its "
+          + warmStart.getSeededAssignments() + " seeded assignments, so its objective does not cover the same work");
+      return baseline;
+    }
+    if (fullPlanningSeconds <= 0) {
+      baseline.put("error", "The statement has no planning duration");
+      return baseline;
+    }
+
+    ArrayNode runs = baseline.putArray("cold_runs");
+    double planningSeconds = Math.min(1, fullPlanningSeconds);
+    while (true) {
+      long start = System.nanoTime();
+      String result = SolverCoordinator.getInstance()
+          .solve(AnytimeSolve.withPlanningDuration(inputMessage, planningSeconds, mapper.getFactory()), configs)
+          .getResult();
+      long solveMillis = (System.nanoTime() - start) / 1_000_000;
+      Double objective = SolutionSummary.readObjectiveValue(mapper.readTree(result));
+      runs.addObject()
+          .put("planning_seconds", planningSeconds)
+          .put("solve_ms", solveMillis)
+          .put("objective", objective);
+      progress.accept("Cold baseline: " + AnytimeSolve.formatSeconds(planningSeconds) + " s planning gave "
+          + SolutionSummary.describeObjective() + " "
+          + objective + " in " + solveMillis + " ms (warm: " + warmObjective + " in " + warmSolveMillis + " ms)");
+
+      if (objective != null && SolutionSummary.isAtLeastAsGood(objective, warmObjective)) {
+        baseline.put("equivalent_planning_seconds", planningSeconds);
+        baseline.put("equivalent_solve_ms", solveMillis);
+        baseline.put("speedup", warmSolveMillis > 0 ? solveMillis / (double) warmSolveMillis : null);
+        return baseline;
+      }
+      if (planningSeconds >= fullPlanningSeconds) {
+        // Even the full budget did not match the warm solve
+        baseline.putNull("equivalent_planning_seconds");
+        baseline.putNull("equivalent_solve_ms");
+        return baseline;
+      }
+      planningSeconds = Math.min(planningSeconds * 2, fullPlanningSeconds);
+    }
+  }
+}
@@ -0,0 +1,262 @@
+package com.greyorange.mvts.designer.warmstart;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Seeds a re-solve with the assignments of the session's previous solution that still hold under the
+ * edited statement, so the planner only has to place the tasks the edit touched.
+ *
+ * A previous assignment is kept if its task is still in the task list, unassigned and bound for the same
+ * PPS and transport entity, and its bot, PPS and transport entity still exist, with the bot not paused.
+ * Its times were planned from positions, so it is also dropped if the statement's start_time changed or
+ * any of the positions it was planned from moved since the previous solve: the bot's, the transport
+ * entity's, the task's destination or aisle, or the PPS's and its docks'. Kept assignments are added to
+ * their PPS's current_schedule.assignments, the shape the planner takes existing assignments in, and
+ * their tasks get the assignment's bot as assigned_ranger_id; the task status is left as it is. The
+ * planning duration is then cut to the share of tasks left to place, but not below minPlanningSeconds.
+ */
+public class WarmStart {
+
+  private static final String PLANNING_DURATION_FIELD = "planning_duration_seconds";
+  private static final String START_TIME_FIELD = "start_time";
+
+  // The fields of each entity an assignment's times are planned from
+  private static final List<String> BOT_TIMING_FIELDS = List.of("coordinate", "available_at_coordinate", "available_at_time");
+  private static final List<String> ENTITY_TIMING_FIELDS = List.of("coordinate", "available_at_coordinate");
+  private static final List<String> TASK_TIMING_FIELDS = List.of("destination", "aisle_info");
+  private static final List<String> PPS_TIMING_FIELDS = List.of("coordinate", "ranger_dock_coordinates", "ranger_exit_coordinates");
+
+  private final String inputMessage;
+  private final int seededAssignments;
+  private final int droppedAssignments;
+  private final int movedAssignments;
+  private final Set<String> seededTaskKeys;
+  private final int tasks;
+  private final double planningSeconds;
+  private final double fullPlanningSeconds;
+
+  private WarmStart(String inputMessage, Set<String> seededTaskKeys, int droppedAssignments, int movedAssignments,
+                    int tasks, double planningSeconds, double fullPlanningSeconds) {
+    this.inputMessage = inputMessage;
+    this.seededAssignments = seededTaskKeys.size();
+    this.seededTaskKeys = seededTaskKeys;
+    this.droppedAssignments = droppedAssignments;
+    this.movedAssignments = movedAssignments;
+    this.tasks = tasks;
+    this.planningSeconds = planningSeconds;
+    this.fullPlanningSeconds = fullPlanningSeconds;
+  }
+
+  /**
+   * Seeds a statement with a previous solution.
+   *
+   * @param inputMessage The edited problem statement JSON.
+   * @param previousStatement The statement the previous result was solved from, or null if there is none.
+   * @param previousResult The session's previous scheduler response, or null.
+   * @param minPlanningSeconds The least planning duration a seeded solve gets.
+   * @param mapper The mapper used to read and write the statement.
+   * @return The seeding; its statement is the one given if nothing could be seeded.
+   */
+  public static WarmStart seed(String inputMessage, JsonNode previousStatement, JsonNode previousResult,
+                               int minPlanningSeconds, ObjectMapper mapper) throws IOException {
+    JsonNode root = mapper.readTree(inputMessage);
+    if (!root.isObject()) {
+      return new WarmStart(inputMessage, Collections.emptySet(), 0, 0, 0, 0, 0);
+    }
+    ObjectNode statement = (ObjectNode) root;
+    double fullPlanningSeconds = statement.path(PLANNING_DURATION_FIELD).asDouble(0);
+    JsonNode previousAssignments = previousResult == null || previousStatement == null
+        ? null : previousResult.path("schedule").path("assignments");
+
+    Map<String, ObjectNode> ppsById = indexById(statement.path("pps_list"), "id");
+    Map<String, ObjectNode> botsById = indexById(statement.path("ranger_list"), "id");
+    Map<String, ObjectNode> entitiesById = indexById(statement.path("transport_entity_list"), "id");
+    Map<String, ObjectNode> tasksByKey = indexById(statement.path("task_list"), "task_key");
+
+    // The same entities as they were when the previous result was planned
+    Map<String, ObjectNode> previousPps = previousStatement == null ? Collections.emptyMap() : indexById(previousStatement.path("pps_list"), "id");
+    Map<String, ObjectNode> previousBots = previousStatement == null ? Collections.emptyMap() : indexById(previousStatement.path("ranger_list"), "id");
+    Map<String, ObjectNode> previousEntities = previousStatement == null ? Collections.emptyMap() : indexById(previousStatement.path("transport_entity_list"), "id");
+    Map<String, ObjectNode> previousTasks = previousStatement == null ? Collections.emptyMap() : indexById(previousStatement.path("task_list"), "task_key");
+    boolean restarted = previousStatement != null
+        && !statement.path(START_TIME_FIELD).equals(previousStatement.path(START_TIME_FIELD));
+
+    // Task keys the statement already schedules itself
+    Set<String> scheduled = new HashSet<>();
+    for (ObjectNode pps : ppsById.values()) {
+      for (JsonNode assignment : pps.path("current_schedule").path("assignments")) {
+        scheduled.add(assignment.path("task_key").asText());
+      }
+    }
+
+    Set<String> seeded = new LinkedHashSet<>();
+    int dropped = 0;
+    int moved = 0;
+    if (previousAssignments != null) {
+      for (JsonNode assignment : previousAssignments) {
+        String taskKey = readId(assignment.get("task_key"));
+        ObjectNode task = taskKey == null ? null : tasksByKey.get(taskKey);
+        ObjectNode pps = ppsById.get(readId(assignment.get("dock_pps_id")));
+        ObjectNode bot = botsById.get(readId(assignment.get("assigned_ranger_id")));
+        String entityId = readId(assignment.get("transport_entity_id"));
+
+        if (task == null || pps == null || bot == null || scheduled.contains(taskKey)
+            || readId(task.get("assigned_ranger_id")) != null
+            || !matches(task.get("destination_id"), assignment.get("dock_pps_id"))
+            || !matches(task.get("transport_entity_id"), assignment.get("transport_entity_id"))
+            || !entitiesById.isEmpty() && entityId != null && !entitiesById.containsKey(entityId)
+            || bot.path("paused").asBoolean(false) || bot.path("is_paused").asBoolean(false)) {
+          dropped++;
+          continue;
+        }
+        ObjectNode entity = entityId == null ? null : entitiesById.get(entityId);
+        if (restarted
+            || moved(bot, previousBots.get(readId(assignment.get("assigned_ranger_id"))), BOT_TIMING_FIELDS)
+            || moved(pps, previousPps.get(readId(assignment.get("dock_pps_id"))), PPS_TIMING_FIELDS)
+            || moved(task, previousTasks.get(taskKey), TASK_TIMING_FIELDS)
+            || entity != null && moved(entity, previousEntities.get(entityId), ENTITY_TIMING_FIELDS)) {
+          dropped++;
+          moved++;
+          continue;
+        }
+
+        ObjectNode schedule = pps.get("current_schedule") instanceof ObjectNode
+            ? (ObjectNode) pps.get("current_schedule") : pps.putObject("current_schedule");
+        ArrayNode assignments = schedule.get("assignments") instanceof ArrayNode
+            ? (ArrayNode) schedule.get("assignments") : schedule.putArray("assignments");
+        assignments.add(assignment.deepCopy());
+        task.set("assigned_ranger_id", assignment.get("assigned_ranger_id"));
+        scheduled.add(taskKey);
+        seeded.add(taskKey);
+      }
+    }
+
+    if (seeded.isEmpty()) {
+      return new WarmStart(inputMessage, seeded, dropped, moved, tasksByKey.size(), fullPlanningSeconds, fullPlanningSeconds);
+    }
+
+    double planningSeconds = fullPlanningSeconds;
+    if (fullPlanningSeconds > 0 && !tasksByKey.isEmpty()) {
+      double unseededShare = (tasksByKey.size() - seeded.size()) / (double) tasksByKey.size();
+      planningSeconds = Math.min(fullPlanningSeconds, Math.max(minPlanningSeconds, Math.ceil(fullPlanningSeconds * unseededShare)));
+      if (planningSeconds == Math.rint(planningSeconds)) {
+        statement.put(PLANNING_DURATION_FIELD, (long) planningSeconds);
+      } else {
+        statement.put(PLANNING_DURATION_FIELD, planningSeconds);
+      }
+    }
+    return new WarmStart(mapper.writeValueAsString(statement), seeded, dropped, moved, tasksByKey.size(),
+        planningSeconds, fullPlanningSeconds);
+  }
+
+  /**
+   * The statement to solve, seeded if any previous assignment was kept.
+   */
+  public String getInputMessage() {
+    return inputMessage;
+  }
+
+  public int getSeededAssignments() {
+    return seededAssignments;
+  }
+
+  public int getDroppedAssignments() {
+    return droppedAssignments;
+  }
+
+  /**
+   * Of the dropped assignments, those dropped because the start time or a position they were planned from changed.
+   */
+  public int getMovedAssignments() {
+    return movedAssignments;
+  }
+
+  public Set<String> getSeededTaskKeys() {
+    return seededTaskKeys;
+  }
+
+  /**
+   * Counts the seeded assignments a scheduler response still holds. Only a response that holds them all
+   * has a cost that covers the same work as an unseeded solve's.
+   */
+  public int countSeededIn(JsonNode result) {
+    Set<String> found = new HashSet<>();
+    for (JsonNode assignment : result.path("schedule").path("assignments")) {
+      String taskKey = readId(assignment.get("task_key"));
+      if (taskKey != null && seededTaskKeys.contains(taskKey)) {
+        found.add(taskKey);
+      }
+    }
+    return found.size();
+  }
+
+  public boolean isCoveredBy(JsonNode result) {
+    return countSeededIn(result) == seededAssignments;
+  }
+
+  public int getTasks() {
+    return tasks;
+  }
+
+  public double getPlanningSeconds() {
+    return planningSeconds;
+  }
+
+  public double getFullPlanningSeconds() {
+    return fullPlanningSeconds;
+  }
+
+  private static Map<String, ObjectNode> indexById(JsonNode list, String idField) {
+    Map<String, ObjectNode> index = new HashMap<>();
+    for (JsonNode entry : list) {
+      String id = entry.isObject() ? readId(entry.get(idField)) : null;
+      if (id != null) {
+        index.put(id, (ObjectNode) entry);
+      }
+    }
+    return index;
+  }
+
+  /**
+   * True if the entity was not in the previous statement or any of the given fields differs from it there.
+   */
+  private static boolean moved(JsonNode current, JsonNode previous, List<String> fields) {
+    if (previous == null) {
+      return true;
+    }
+    for (String field : fields) {
+      if (!current.path(field).equals(previous.path(field))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * True if a task field agrees with the assignment's, or either is not set.
+   */
+  private static boolean matches(JsonNode taskValue, JsonNode assignmentValue) {
+    String task = readId(taskValue);
+    String assignment = readId(assignmentValue);
+    return task == null || assignment == null || task.equals(assignment);
+  }
+
+  /**
+   * Reads an id as text so that 1 and "1" refer to the same entity.
+   */
+  private static String readId(JsonNode id) {
+    return id != null && (id.isTextual() || id.isIntegralNumber()) ? id.asText() : null;
+  }
+}
@@ -0,0 +1,104 @@
+package com.greyorange.mvts.designer.warmup;
+
+import com.greyorange.multifleetplanner.helpers.Helper;
+import com.greyorange.multifleetplanner.pojo.*;
+import com.greyorange.mvts.designer.ProblemStatementStudio;
+import com.greyorange.mvts.designer.properties.ApplicationProperties;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs one synthetic solve through {@link ProblemStatementStudio#solve} before the servers accept clients.
+ *
+ * The planner stack is loaded lazily, so without this the first client pays for class loading, static
+ * initialization and interpreted execution of the whole solve path. The statement is built from the
+ * same defaults the REST API hands out, scaled by WARMUP_SCALE so that the hot loops run long enough
+ * to be compiled.
+ */
+public class WarmupSolve {
+
+  private final int scale;
+
+  public WarmupSolve() {
+    this(ApplicationProperties.WARMUP_SCALE.getIntValue());
+  }
+
+  public WarmupSolve(int scale) {
+    this.scale = Math.max(1, scale);
+  }
+
+  /**
+   * Runs the warm-up solve and logs how long it took. Failures are logged and never stop the server from starting.
+   */
+  public void run() {
+    long start = System.nanoTime();
+    try {
+      String inputMessage = Helper.getObjectMapper().writeValueAsString(buildInputMessage());
+      ProblemStatementStudio.getInstance().solve(inputMessage, Collections.emptyMap());
+      System.out.println("Warm-up solve with " + scale + " bots finished in " + elapsedMillis(start)
+          + " ms (JVM uptime " + ManagementFactory.getRuntimeMXBean().getUptime() + " ms)");
+    } catch (Exception e) {
+      System.err.println("Warm-up solve failed after " + elapsedMillis(start) + " ms: " + e.getMessage());
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Builds a statement with {@code scale} bots, one PPS per five bots, and two MSUs and two tasks per bot.
+   */
+  InputMessage buildInputMessage() {
+    ProblemStatementStudio studio = ProblemStatementStudio.getInstance();
+    int ppsCount = (scale + 4) / 5;
+    int msuCount = scale * 2;
+
+    List<Pps> ppsList = new ArrayList<>();
+    for (int i = 1; i <= ppsCount; i++) {
+      Pps pps = studio.getPps();
+      Coordinate coordinate = new Coordinate(i * 4, 0);
+      pps.setPpsID(i);
+      pps.setOperatorCoordinate(coordinate);
+      pps.setBinDetails(new ArrayList<>(List.of(new BinDetails(i + "-1", true, false))));
+      pps.setDockCoordinate(new ArrayList<>(List.of(new DockCoordinate(coordinate, DockType.rtp_pps_location))));
+      pps.setPpsExitCoordinate(pps.getDockCoordinate());
+      ppsList.add(pps);
+    }
+
+    List<Bot> botList = new ArrayList<>();
+    for (int i = 1; i <= scale; i++) {
+      Bot bot = studio.getBot();
+      bot.setBotID(i);
+      bot.setCurrentCoordinate(new Coordinate(i, 1));
+      bot.setAvailableAtCoordinate(new Coordinate(i, 1));
+      botList.add(bot);
+    }
+
+    List<Msu> msuList = new ArrayList<>();
+    List<Task> tasks = new ArrayList<>();
+    for (int i = 1; i <= msuCount; i++) {
+      Msu msu = studio.getMSU();
+      Coordinate coordinate = new Coordinate(i % (scale + 1), 3 + i / (scale + 1));
+      msu.setMsuID(String.valueOf(i));
+      msu.setCoordinate(coordinate);
+      msu.setIdleCoordinate(coordinate);
+      msuList.add(msu);
+
+      Task task = studio.getTask("task-" + i, 1 + (i - 1) % ppsCount, String.valueOf(i));
+      task.setCoordinate(coordinate);
+      tasks.add(task);
+    }
+
+    InputMessage inputMessage = studio.getInputMessage();
+    inputMessage.setPpsList(ppsList);
+    inputMessage.setBotList(botList);
+    inputMessage.setMsuList(msuList);
+    inputMessage.setTasks(tasks);
+    return inputMessage;
+  }
+
+  private static long elapsedMillis(long startNanos) {
+    return (System.nanoTime() - startNanos) / 1_000_000;
+  }
+}
@@ -0,0 +1,46 @@
+// Checks that the UI's columnar decoder turns the server's encoded response back into the plain one,
+// byte for byte, and times it against parsing the plain response.
+//
+// Usage: node scripts/columnarRoundTrip.mjs <directory with plain.json and enc.json>
+// Write the two files with the server's ColumnarResultBenchmark.
+
+import { readFileSync } from 'fs';
+import { dirname, join } from 'path';
+import { fileURLToPath } from 'url';
+
+const RUNS = 9;
+
+const dir = process.argv[2];
+if (!dir) {
+  console.error('Usage: node scripts/columnarRoundTrip.mjs <directory with plain.json and enc.json>');
+  process.exit(2);
+}
+
+// The package is not an ES module package, so load the decoder source as a module directly.
+const decoderPath = join(dirname(fileURLToPath(import.meta.url)), '../src/utils/columnarResult.js');
+const { decodeColumnarResult } = await import(
+  'data:text/javascript,' + encodeURIComponent(readFileSync(decoderPath, 'utf8'))
+);
+
+const plain = readFileSync(join(dir, 'plain.json'), 'utf8');
+const encoded = readFileSync(join(dir, 'enc.json'), 'utf8');
+const identical = JSON.stringify(decodeColumnarResult(JSON.parse(encoded))) === plain;
+console.log(`Round trip byte-identical: ${identical}`);
+
+const median = (times) => times.sort((a, b) => a - b)[Math.floor(times.length / 2)];
+const parsePlain = [];
+const parseDecode = [];
+for (let run = 0; run < RUNS; run++) {
+  const start = performance.now();
+  JSON.parse(plain);
+  const parsed = performance.now();
+  decodeColumnarResult(JSON.parse(encoded));
+  parseDecode.push(performance.now() - parsed);
+  parsePlain.push(parsed - start);
+}
+console.log(`Median of ${RUNS} runs: parse plain ${median(parsePlain).toFixed(1)} ms, `
+  + `parse and decode columnar ${median(parseDecode).toFixed(1)} ms`);
+
+if (!identical) {
+  process.exit(1);
+}
@@ -33,7 +33,7 @@ const GridEditor = () => {
   } = schemaManager;
 
   const serverAPI = useServerAPI();
-  const { logs, isStreaming, clearLogs } = serverAPI;
+  const { logs, isStreaming, clearLogs, jobId, loadFullLogs, partialSolution } = serverAPI;
   const configManager = useConfigManager();
 
   // Grid state management
@@ -168,6 +168,11 @@ const GridEditor = () => {
           logs={logs}
           isStreaming={isStreaming}
           onClearLogs={clearLogs}
+          onLoadFullLogs={jobId ? loadFullLogs : null}
+          jobId={jobId}
+          onWatchJob={handlers.handleWatchJob}
+          partialSolution={partialSolution}
+          onCancelJob={handlers.handleCancelJob}
           onClear={handleClearSolution}
           onAssignToProblem={handlers.handleAssignSolutionToProblem}
         />
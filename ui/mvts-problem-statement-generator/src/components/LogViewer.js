@@ -1,11 +1,12 @@
 // src/components/LogViewer.js
 import React, { useState, useRef, useEffect, useMemo } from 'react';
 
-const LogViewer = ({ logs, isStreaming, onClearLogs, embedded = false }) => {
+const LogViewer = ({ logs, isStreaming, onClearLogs, onLoadFullLogs, embedded = false }) => {
   const [isCollapsed, setIsCollapsed] = useState(false);
   const [autoScroll, setAutoScroll] = useState(true);
   const [searchTerm, setSearchTerm] = useState('');
   const [levelFilter, setLevelFilter] = useState('ALL');
+  const [isLoadingFull, setIsLoadingFull] = useState(false);
   const logContainerRef = useRef(null);
 
   // Auto-scroll to bottom when new logs arrive
@@ -79,6 +80,18 @@ const LogViewer = ({ logs, isStreaming, onClearLogs, embedded = false }) => {
     }
   };
 
+  // Replace the (possibly sampled) live logs with the full log kept on the server
+  const handleLoadFullLogs = async () => {
+    setIsLoadingFull(true);
+    try {
+      await onLoadFullLogs();
+    } catch (error) {
+      console.error('Failed to load full logs:', error);
+    } finally {
+      setIsLoadingFull(false);
+    }
+  };
+
   // Handle log container scroll to detect if user is scrolling up
   const handleScroll = () => {
     if (logContainerRef.current) {
@@ -274,6 +287,23 @@ const LogViewer = ({ logs, isStreaming, onClearLogs, embedded = false }) => {
             >
               ⬇ Bottom
             </button>
+            {onLoadFullLogs && !isStreaming && (
+              <button
+                onClick={handleLoadFullLogs}
+                disabled={isLoadingFull}
+                style={{
+                  padding: '4px 8px',
+                  fontSize: '10px',
+                  border: '1px solid #ddd',
+                  borderRadius: '3px',
+                  backgroundColor: '#fff',
+                  color: '#007bff',
+                  cursor: isLoadingFull ? 'wait' : 'pointer'
+                }}
+              >
+                {isLoadingFull ? 'Loading...' : '📥 Load full log'}
+              </button>
+            )}
             <span style={{ color: '#666' }}>
               {isStreaming ? 'Receiving logs...' : `${filteredLogs.length} logs displayed`}
             </span>
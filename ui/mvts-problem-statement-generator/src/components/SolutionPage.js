@@ -1,15 +1,55 @@
 // src/components/SolutionPage.js
-import React, { useState, useMemo, useEffect } from 'react';
+import React, { useState, useMemo, useEffect, memo } from 'react';
 import LogViewer from './LogViewer';
+import SolutionSummary from './SolutionSummary';
 
-const SolutionPage = ({ solutionData, logs, isStreaming, onClearLogs, onClear, onAssignToProblem }) => {
+// Memoized so rows for assignments unchanged since the last solve are not re-rendered
+const AssignmentRow = memo(({ assignment, onAssignToProblem }) => (
+  <div className="p-3 bg-gray-50 dark:bg-gray-700 rounded border border-gray-200 dark:border-gray-600">
+    <div className="grid grid-cols-2 gap-2 text-sm">
+      <div><strong>Task:</strong> {assignment.task_key}</div>
+      <div><strong>Bot:</strong> {assignment.assigned_ranger_id}</div>
+      <div><strong>PPS:</strong> {assignment.dock_pps_id}</div>
+      <div><strong>MSU:</strong> {assignment.transport_entity_id}</div>
+      <div><strong>Start:</strong> {assignment.startTime || assignment.operator_start_time || 0}ms</div>
+      <div><strong>End:</strong> {assignment.endTime || assignment.operator_end_time || 0}ms</div>
+    </div>
+    <div className="mt-2 flex justify-end">
+      <button
+        onClick={() => onAssignToProblem(assignment)}
+        className="py-1 px-3 bg-blue-500 dark:bg-blue-600 text-white border-none rounded cursor-pointer hover:bg-blue-600 dark:hover:bg-blue-700 transition-colors text-sm"
+      >
+        Assign
+      </button>
+    </div>
+  </div>
+));
+
+const SolutionPage = ({ solutionData, logs, isStreaming, onClearLogs, onLoadFullLogs, jobId, onWatchJob, partialSolution, onCancelJob, onClear, onAssignToProblem }) => {
    const [viewMode, setViewMode] = useState('list'); // 'list' or 'gantt'
+   const [watchJobId, setWatchJobId] = useState('');
    const [sectionsCollapsed, setSectionsCollapsed] = useState({
+     summary: false,
      assignments: false,
      solution: true, // Start collapsed
      logs: !isStreaming // Show logs while streaming
    });
 
+   // Time scale of the Gantt chart, taken from the server's summary when present
+   const timeScale = useMemo(() => {
+     const summary = solutionData?.summary;
+     if (summary && summary.end_ms !== undefined) {
+       return { minTime: Math.min(summary.start_ms, 0), actualMaxTime: Math.max(summary.end_ms, 1) };
+     }
+
+     const assignments = solutionData?.schedule?.assignments || solutionData?.assignments || [];
+     const allTimes = assignments.flatMap(a => [
+       a.startTime || a.operator_start_time || 0,
+       a.endTime || a.operator_end_time || 0
+     ]);
+     return { minTime: Math.min(...allTimes, 0), actualMaxTime: Math.max(...allTimes, 1) };
+   }, [solutionData]);
+
    // Process assignments for Gantt chart - must be before any conditional returns
    const ganttData = useMemo(() => {
      if (!solutionData) return [];
@@ -17,12 +57,8 @@ const SolutionPage = ({ solutionData, logs, isStreaming, onClearLogs, onClear, o
      const assignments = solutionData.schedule?.assignments || solutionData.assignments || [];
 
      // Calculate time scale with 5-second buffer at the end
-     const allTimes = assignments.flatMap(a => [
-       a.startTime || a.operator_start_time || 0,
-       a.endTime || a.operator_end_time || 0
-     ]);
-     const minTime = Math.min(...allTimes, 0);
-     const maxTime = Math.max(...allTimes, 1) + 5000; // Add 5-second (5000ms) buffer
+     const minTime = timeScale.minTime;
+     const maxTime = timeScale.actualMaxTime + 5000; // Add 5-second (5000ms) buffer
      const timeRange = maxTime - minTime;
 
      return assignments.map(assignment => ({
@@ -37,7 +73,7 @@ const SolutionPage = ({ solutionData, logs, isStreaming, onClearLogs, onClear, o
        startPercent: timeRange > 0 ? ((assignment.startTime || assignment.operator_start_time || 0) - minTime) / timeRange * 100 : 0,
        durationPercent: timeRange > 0 ? ((assignment.endTime || assignment.operator_end_time || 0) - (assignment.startTime || assignment.operator_start_time || 0)) / timeRange * 100 : 100
      }));
-   }, [solutionData]);
+   }, [solutionData, timeScale]);
 
    // Extract assignments for use in components
    const assignments = useMemo(() => {
@@ -83,6 +119,31 @@ const SolutionPage = ({ solutionData, logs, isStreaming, onClearLogs, onClear, o
          <div className="p-4 bg-blue-50 dark:bg-blue-900/20 rounded-lg text-sm max-w-lg border border-blue-200 dark:border-blue-700">
            <strong>💡 Tip:</strong> Go to the Grid Editor tab, set up your warehouse with bots, PPS, MSUs, and tasks, then click "🚀 Run" to solve the problem.
          </div>
+         {onWatchJob && (
+           <form
+             className="mt-5 flex gap-2 max-w-lg w-full"
+             onSubmit={(e) => {
+               e.preventDefault();
+               if (watchJobId.trim()) {
+                 onWatchJob(watchJobId.trim());
+               }
+             }}
+           >
+             <input
+               type="text"
+               value={watchJobId}
+               onChange={(e) => setWatchJobId(e.target.value)}
+               placeholder="Job id shared by a teammate"
+               className="flex-1 py-1.5 px-2 text-sm rounded border border-gray-300 dark:border-gray-600 bg-white dark:bg-gray-800 text-gray-900 dark:text-gray-100"
+             />
+             <button
+               type="submit"
+               className="py-1.5 px-3 bg-blue-500 dark:bg-blue-600 text-white border-none rounded cursor-pointer hover:bg-blue-600 dark:hover:bg-blue-700 transition-colors text-sm"
+             >
+               👀 Watch solve
+             </button>
+           </form>
+         )}
        </div>
      );
    }
@@ -100,24 +161,11 @@ const SolutionPage = ({ solutionData, logs, isStreaming, onClearLogs, onClear, o
      return (
        <div className="space-y-2">
          {assignments.map((assignment, index) => (
-           <div key={`${assignment.task_key}-${index}`} className="p-3 bg-gray-50 dark:bg-gray-700 rounded border border-gray-200 dark:border-gray-600">
-             <div className="grid grid-cols-2 gap-2 text-sm">
-               <div><strong>Task:</strong> {assignment.task_key}</div>
-               <div><strong>Bot:</strong> {assignment.assigned_ranger_id}</div>
-               <div><strong>PPS:</strong> {assignment.dock_pps_id}</div>
-               <div><strong>MSU:</strong> {assignment.transport_entity_id}</div>
-               <div><strong>Start:</strong> {assignment.startTime || assignment.operator_start_time || 0}ms</div>
-               <div><strong>End:</strong> {assignment.endTime || assignment.operator_end_time || 0}ms</div>
-             </div>
-             <div className="mt-2 flex justify-end">
-               <button
-                 onClick={() => onAssignToProblem(assignment)}
-                 className="py-1 px-3 bg-blue-500 dark:bg-blue-600 text-white border-none rounded cursor-pointer hover:bg-blue-600 dark:hover:bg-blue-700 transition-colors text-sm"
-               >
-                 Assign
-               </button>
-             </div>
-           </div>
+           <AssignmentRow
+             key={assignment.task_key ?? `assignment-${index}`}
+             assignment={assignment}
+             onAssignToProblem={onAssignToProblem}
+           />
          ))}
        </div>
      );
@@ -148,9 +196,7 @@ const SolutionPage = ({ solutionData, logs, isStreaming, onClearLogs, onClear, o
      });
 
      // Use the actual time range including buffer from ganttData calculation
-     const allTimes = ganttData.flatMap(a => [a.startTime, a.endTime]);
-     const minTime = Math.min(...allTimes, 0);
-     const actualMaxTime = Math.max(...allTimes, 1);
+     const { minTime, actualMaxTime } = timeScale;
      const maxTime = actualMaxTime + 5000; // Include the 5-second buffer
 
      // Create time markers for better visualization
@@ -237,8 +283,47 @@ const SolutionPage = ({ solutionData, logs, isStreaming, onClearLogs, onClear, o
              🔄 Waiting for solution...
            </div>
          )}
+
+         {/* Best solution so far of a solve run in contracts, which can be stopped once it is good enough */}
+         {partialSolution && (
+           <div className="mt-2.5 flex justify-between items-center bg-yellow-50 dark:bg-yellow-900/20 text-yellow-800 dark:text-yellow-200 py-2 px-3 rounded border border-yellow-200 dark:border-yellow-700">
+             <span>
+               ⏳ Best so far: {partialSolution.assignmentCount} assignments from contract {partialSolution.bestContract}
+               ({partialSolution.contract} of {partialSolution.contracts} run)
+               {partialSolution.objective != null && (
+                 <span className="ml-2 font-mono text-xs">cost {JSON.stringify(partialSolution.objective)}</span>
+               )}
+             </span>
+             {onCancelJob && !partialSolution.watched && (
+               <button
+                 onClick={() => onCancelJob(partialSolution.jobId)}
+                 className="py-1 px-3 bg-yellow-500 dark:bg-yellow-600 text-white border-none rounded cursor-pointer hover:bg-yellow-600 dark:hover:bg-yellow-700 transition-colors text-sm"
+                 title="Stop after the current contract and keep the best solution found"
+               >
+                 ⏹ Stop and keep
+               </button>
+             )}
+           </div>
+         )}
        </div>
 
+       {/* Summary Section */}
+       {solutionData?.summary && (
+         <div className="bg-white dark:bg-gray-800 p-5 rounded-lg mb-5 shadow">
+           <div
+             className="flex justify-between items-center mb-4 cursor-pointer"
+             onClick={() => toggleSection('summary')}
+           >
+             <h3 className="m-0 text-gray-900 dark:text-gray-100">📊 Summary</h3>
+             <span className="text-gray-500 dark:text-gray-400 text-sm">
+               {sectionsCollapsed.summary ? '▶' : '▼'}
+             </span>
+           </div>
+
+           {!sectionsCollapsed.summary && <SolutionSummary summary={solutionData.summary} />}
+         </div>
+       )}
+
        {/* Assignments Section */}
        {solutionData && (
          <div className="bg-white dark:bg-gray-800 p-5 rounded-lg mb-5 shadow">
@@ -322,6 +407,11 @@ const SolutionPage = ({ solutionData, logs, isStreaming, onClearLogs, onClear, o
          >
            <h3 className="m-0 text-gray-900 dark:text-gray-100">
              📋 Server Logs ({logs.length})
+             {jobId && (
+               <span className="ml-2 text-gray-500 dark:text-gray-400 text-xs font-normal select-all" title="Share this id so others can watch the solve">
+                 {jobId}
+               </span>
+             )}
              {isStreaming && (
                <span className="ml-2 text-blue-600 dark:text-blue-400 text-sm">🔄 Streaming...</span>
              )}
@@ -346,6 +436,7 @@ const SolutionPage = ({ solutionData, logs, isStreaming, onClearLogs, onClear, o
            <LogViewer
              logs={logs}
              isStreaming={isStreaming}
+             onLoadFullLogs={onLoadFullLogs}
            />
          )}
        </div>
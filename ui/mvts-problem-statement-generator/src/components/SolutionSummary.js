@@ -0,0 +1,122 @@
+// src/components/SolutionSummary.js
+import React, { memo } from 'react';
+
+// Renders the server-computed summary block, so large solutions are summarized without walking every assignment
+const StatCard = ({ label, value }) => (
+  <div className="p-3 bg-gray-50 dark:bg-gray-700 rounded border border-gray-200 dark:border-gray-600">
+    <div className="text-xs text-gray-500 dark:text-gray-400">{label}</div>
+    <div className="text-lg font-bold text-gray-900 dark:text-gray-100">{value}</div>
+  </div>
+);
+
+const CountBadges = ({ counts, suffix = '' }) => (
+  <div className="flex flex-wrap gap-2">
+    {Object.entries(counts || {}).map(([key, count]) => (
+      <span
+        key={key}
+        className="py-1 px-2 text-xs rounded bg-blue-50 dark:bg-blue-900/20 text-blue-800 dark:text-blue-200 border border-blue-200 dark:border-blue-700"
+      >
+        {key}{suffix}: {count}
+      </span>
+    ))}
+  </div>
+);
+
+const formatMegabytes = (bytes) => (bytes >= 0 ? `${(bytes / (1024 * 1024)).toFixed(1)} MB` : 'n/a');
+
+const SolutionSummary = memo(({ summary }) => {
+  if (!summary) return null;
+
+  const unassigned = summary.unassigned || { count: 0, task_keys: [] };
+  const trips = summary.msu_trips || {};
+  const memory = summary.solve_memory;
+
+  return (
+    <div className="space-y-4">
+      <div className="grid grid-cols-2 md:grid-cols-4 gap-2">
+        <StatCard label="Assignments" value={summary.assignments} />
+        <StatCard label="Tasks" value={summary.tasks} />
+        <StatCard label="Unassigned" value={unassigned.count} />
+        <StatCard label="Makespan" value={`${summary.makespan_ms}ms`} />
+      </div>
+
+      {memory && (
+        <div className="grid grid-cols-2 md:grid-cols-4 gap-2">
+          <StatCard label="Allocated" value={formatMegabytes(memory.allocated_bytes)} />
+          <StatCard label="Peak heap" value={`+${formatMegabytes(memory.peak_heap_delta_bytes)}`} />
+          <StatCard label="Predicted peak" value={formatMegabytes(memory.predicted_peak_heap_bytes)} />
+          <StatCard label="Heap budget" value={formatMegabytes(memory.heap_budget_bytes)} />
+        </div>
+      )}
+
+      <div>
+        <h4 className="m-0 mb-2 text-sm text-gray-900 dark:text-gray-100">Task types</h4>
+        <CountBadges counts={summary.task_types} />
+      </div>
+
+      <div>
+        <h4 className="m-0 mb-2 text-sm text-gray-900 dark:text-gray-100">
+          MSU trips ({trips.total || 0} trips, {trips.distinct || 0} MSUs, max {trips.max || 0} per MSU)
+        </h4>
+        <CountBadges counts={trips.histogram} suffix=" trip(s)" />
+      </div>
+
+      <div className="grid grid-cols-1 md:grid-cols-2 gap-4">
+        <div>
+          <h4 className="m-0 mb-2 text-sm text-gray-900 dark:text-gray-100">Bot utilisation</h4>
+          <div className="max-h-60 overflow-auto border border-gray-200 dark:border-gray-600 rounded">
+            <table className="w-full text-xs text-gray-900 dark:text-gray-100">
+              <thead className="bg-gray-50 dark:bg-gray-700 sticky top-0">
+                <tr><th className="p-1 text-left">Bot</th><th className="p-1 text-right">Tasks</th><th className="p-1 text-right">Busy</th><th className="p-1 text-right">Utilisation</th></tr>
+              </thead>
+              <tbody>
+                {(summary.bots || []).map(bot => (
+                  <tr key={bot.id} className="border-t border-gray-200 dark:border-gray-600">
+                    <td className="p-1">{bot.id}</td>
+                    <td className="p-1 text-right">{bot.tasks}</td>
+                    <td className="p-1 text-right">{bot.busy_ms}ms</td>
+                    <td className="p-1 text-right">{Math.round(bot.utilisation * 100)}%</td>
+                  </tr>
+                ))}
+              </tbody>
+            </table>
+          </div>
+        </div>
+
+        <div>
+          <h4 className="m-0 mb-2 text-sm text-gray-900 dark:text-gray-100">PPS load</h4>
+          <div className="max-h-60 overflow-auto border border-gray-200 dark:border-gray-600 rounded">
+            <table className="w-full text-xs text-gray-900 dark:text-gray-100">
+              <thead className="bg-gray-50 dark:bg-gray-700 sticky top-0">
+                <tr><th className="p-1 text-left">PPS</th><th className="p-1 text-right">Tasks</th><th className="p-1 text-right">Busy</th><th className="p-1 text-right">Peak queue</th></tr>
+              </thead>
+              <tbody>
+                {(summary.pps || []).map(pps => (
+                  <tr key={pps.id} className="border-t border-gray-200 dark:border-gray-600">
+                    <td className="p-1">{pps.id}</td>
+                    <td className="p-1 text-right">{pps.tasks}</td>
+                    <td className="p-1 text-right">{pps.busy_ms}ms</td>
+                    <td className="p-1 text-right">{pps.peak_queue}</td>
+                  </tr>
+                ))}
+              </tbody>
+            </table>
+          </div>
+        </div>
+      </div>
+
+      {unassigned.count > 0 && (
+        <div>
+          <h4 className="m-0 mb-2 text-sm text-gray-900 dark:text-gray-100">
+            Unassigned tasks ({unassigned.count}{unassigned.task_keys.length < unassigned.count ? `, first ${unassigned.task_keys.length} shown` : ''})
+          </h4>
+          <div className="text-xs text-gray-700 dark:text-gray-300 break-all">
+            {unassigned.task_keys.join(', ')}
+          </div>
+        </div>
+      )}
+    </div>
+  );
+});
+
+export default SolutionSummary;
@@ -19,7 +19,7 @@ const Toolbar = ({
   availableMSU,
   availableBots
 }) => {
-  const { isConnected, isLoading } = serverAPI;
+  const { isConnected, isLoading, warmStart, setWarmStart, partialSolutions, setPartialSolutions } = serverAPI;
   const [showTaskForm, setShowTaskForm] = useState(false);
   const [showAssignmentForm, setShowAssignmentForm] = useState(false);
   const [taskFormData, setTaskFormData] = useState({
@@ -284,6 +284,30 @@ const Toolbar = ({
           >
             {isLoading ? "🔄 Solving..." : "🚀 Solve Problem"}
           </button>
+
+          <label
+            className="flex items-center gap-1.5 text-xs text-gray-700 dark:text-gray-300 cursor-pointer"
+            title="Keep the previous solution's assignments that still hold and only plan the rest"
+          >
+            <input
+              type="checkbox"
+              checked={warmStart}
+              onChange={(e) => setWarmStart(e.target.checked)}
+            />
+            Warm start from last solution
+          </label>
+
+          <label
+            className="flex items-center gap-1.5 text-xs text-gray-700 dark:text-gray-300 cursor-pointer"
+            title="Solve in steps and show the best solution so far after each. The last step gets about half the planning time, so the final solution is about as good as one planned for half as long."
+          >
+            <input
+              type="checkbox"
+              checked={partialSolutions}
+              onChange={(e) => setPartialSolutions(e.target.checked)}
+            />
+            Show partial solutions (final solution gets half the planning time)
+          </label>
         </div>
       </div>
 
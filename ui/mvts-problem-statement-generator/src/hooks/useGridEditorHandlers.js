@@ -15,7 +15,7 @@ export const useGridEditorHandlers = (
 ) => {
   const { addObject } = objectManager;
   const { addAssignmentToPPS, removeAssignmentFromPPS } = localStateManager;
-  const { solveProblemStatement } = serverAPI;
+  const { solveProblemStatement, watchJob, cancelJob } = serverAPI;
   const { getConfigForProblemStatement } = configManager;
   const { getTemplate } = schemaManager;
 
@@ -69,7 +69,11 @@ export const useGridEditorHandlers = (
       // Include config in the solve request
       const solution = await solveProblemStatement(
         problemStatement, 
-        localConfig
+        localConfig,
+        {
+          width: localWarehouseData.warehouse.width,
+          height: localWarehouseData.warehouse.height
+        }
       );
       
       console.log('Received solution from server:', solution);
@@ -80,6 +84,26 @@ export const useGridEditorHandlers = (
     }
   }, [solveProblemStatement, setSolutionData, getConfigForProblemStatement, setActiveTab]);
 
+  const handleWatchJob = useCallback(async (jobId) => {
+    try {
+      setSolutionData(null);
+      const solution = await watchJob(jobId);
+      setSolutionData(solution);
+    } catch (error) {
+      console.error('Failed to watch job:', error);
+      alert(`Failed to watch job: ${error.message}`);
+    }
+  }, [watchJob, setSolutionData]);
+
+  const handleCancelJob = useCallback(async (jobId) => {
+    try {
+      await cancelJob(jobId);
+    } catch (error) {
+      console.error('Failed to stop job:', error);
+      alert(`Failed to stop job: ${error.message}`);
+    }
+  }, [cancelJob]);
+
   const handleAddTask = useCallback(async (taskData) => {
     try {
       console.log('Creating task with data:', taskData);
@@ -188,6 +212,8 @@ export const useGridEditorHandlers = (
     handleAddObjectFromList,
     handleJsonSave,
     handleSolveProblem,
+    handleWatchJob,
+    handleCancelJob,
     handleAddTask,
     handleAddAssignment,
     handleRemoveAssignment,
@@ -1,6 +1,9 @@
 // src/hooks/useServerAPI.js
 import { useState, useCallback, useRef } from 'react';
 import { getWSConfig, getRestConfig } from '../utils/constants';
+import { createJsonPatch } from '../utils/jsonPatch';
+import { applySolutionDelta } from '../utils/solutionDelta';
+import { decodeColumnarResult, COLUMNAR_ENCODING } from '../utils/columnarResult';
 
 export const useServerAPI = () => {
   const [isConnected, setIsConnected] = useState(false);
@@ -11,7 +14,22 @@ export const useServerAPI = () => {
   const [schemas, setSchemas] = useState({});
   const [logs, setLogs] = useState([]);
   const [isStreaming, setIsStreaming] = useState(false);
+  const [jobId, setJobId] = useState(null);
+  // Progress of a solve run in contracts: the latest partial solution's figures, until the result arrives
+  const [partialSolution, setPartialSolution] = useState(null);
+  // Re-solve from the previous solution's assignments that still hold, once there is one
+  const [warmStart, setWarmStart] = useState(false);
+  // Solve in contracts with a partial solution after each; off by default as it costs solution quality
+  const [partialSolutions, setPartialSolutions] = useState(false);
   const logCounterRef = useRef(0);
+  // Jobs of other sessions we watch; only the submitting connection may cancel a job
+  const watchedJobsRef = useRef(new Set());
+  // Id the server issued for our stored statement, sent back so it is kept across reconnects
+  const sessionIdRef = useRef(null);
+  // Last statement the server acknowledged, used as the base for patches
+  const lastUploadRef = useRef(null);
+  // Last solution and its server version, the base for solution deltas
+  const lastSolutionRef = useRef(null);
 
   // Generate unique request ID
   const generateRequestId = useCallback(() => {
@@ -92,8 +110,17 @@ export const useServerAPI = () => {
           const data = JSON.parse(event.data);
           console.log('Received from server:', data);
 
+          // The server stored our statement under a new session id; not the reply the request waits for
+          if (data.type === 'SESSION_ISSUED') {
+            sessionIdRef.current = data.data?.sessionId ?? null;
+            return;
+          }
+
           // Handle streaming log messages
           if (data.type === 'SOLVING_PROBLEM_STATEMENT') {
+            if (data.data?.jobId) {
+              setJobId(data.data.jobId);
+            }
             const uniqueId = `log-${Date.now()}-${++logCounterRef.current}-${Math.random().toString(36).substr(2, 9)}`;
             setLogs(prevLogs => [...prevLogs, {
               id: uniqueId,
@@ -107,21 +134,49 @@ export const useServerAPI = () => {
             return; // Don't process as regular request response
           }
 
+          // Handle the best solution found so far by a solve run in contracts
+          if (data.type === 'PARTIAL_SOLUTION') {
+            setPartialSolution({
+              jobId: data.jobId,
+              contract: data.data?.contract,
+              contracts: data.data?.contracts,
+              bestContract: data.data?.best_contract,
+              watched: watchedJobsRef.current.has(data.jobId),
+              planningSeconds: data.data?.planning_seconds,
+              elapsedMs: data.data?.elapsed_ms,
+              assignmentCount: data.data?.assignment_count,
+              objective: data.data?.objective ?? null
+            });
+            return;
+          }
+
           // Handle problem statement solved
           if (data.type === 'PROBLEM_STATEMENT_SOLVED') {
-            console.log('Problem statement solved, received solution:', data.data);
+            if (data.jobId) {
+              setJobId(data.jobId);
+            }
+            setPartialSolution(null);
+            let solution = decodeColumnarResult(data.data);
+            if (solution?.solution_delta) {
+              solution = applySolutionDelta(lastSolutionRef.current?.solution, solution.solution_delta);
+            }
+            if (data.resultVersion != null && solution && typeof solution === 'object') {
+              lastSolutionRef.current = { version: data.resultVersion, solution };
+            }
+
+            console.log('Problem statement solved, received solution:', solution);
             setIsStreaming(false); // Stop streaming
             setIsLoading(false);
             setLoadingMessage('');
             
             // Find the pending solve request and resolve it with the solution
             const solveRequest = Array.from(pendingRequestsRef.current.entries())
-              .find(([id, request]) => request.type === 'SOLVE_PROBLEM_STATEMENT');
+              .find(([id, request]) => request.type === 'SOLVE_PROBLEM_STATEMENT' || request.type === 'SOLVE_CURRENT' || request.type === 'SUBSCRIBE_JOB');
             
             if (solveRequest) {
               const [requestId, { resolve: requestResolve }] = solveRequest;
               pendingRequestsRef.current.delete(requestId);
-              requestResolve({ solution: data.data });
+              requestResolve({ solution });
             }
             
             // Disconnect from server after receiving solution
@@ -242,6 +297,76 @@ export const useServerAPI = () => {
     }
   }, []);
 
+  // Fetch the entities inside a viewport from the session's server-side spatial index
+  const fetchTiles = useCallback(async ({ x0, y0, x1, y1, kinds = null }) => {
+    if (!sessionIdRef.current) {
+      // Nothing has been sent to the server yet
+      return null;
+    }
+    const params = new URLSearchParams({
+      session: sessionIdRef.current,
+      x0, y0, x1, y1
+    });
+    if (kinds && kinds.length > 0) {
+      params.set('kinds', kinds.join(','));
+    }
+
+    const response = await fetch(buildRestUrl(`/api/tiles?${params.toString()}`), {
+      method: 'GET',
+      headers: {
+        'Content-Type': 'application/json',
+      },
+    });
+    if (response.status === 404) {
+      // Nothing has been sent to the server for this session yet
+      return null;
+    }
+    if (!response.ok) {
+      throw new Error(`HTTP error! status: ${response.status}`);
+    }
+    return await response.json();
+  }, []);
+
+  // Fetch one page of a solve's full log, which the server keeps even when the live stream is sampled
+  const fetchJobLogs = useCallback(async (id, { offset = 0, limit = 1000, level = null } = {}) => {
+    const params = new URLSearchParams({ offset, limit });
+    if (level) {
+      params.set('level', level);
+    }
+
+    const response = await fetch(buildRestUrl(`/api/jobs/${encodeURIComponent(id)}/logs?${params.toString()}`), {
+      method: 'GET',
+      headers: {
+        'Content-Type': 'application/json',
+      },
+    });
+    if (!response.ok) {
+      throw new Error(`HTTP error! status: ${response.status}`);
+    }
+    return await response.json();
+  }, []);
+
+  // Replace the streamed logs with every event captured for the last solve
+  const loadFullLogs = useCallback(async (level = null) => {
+    if (!jobId) {
+      return;
+    }
+    const fullLogs = [];
+    let page;
+    do {
+      page = await fetchJobLogs(jobId, { offset: fullLogs.length, level });
+      page.events.forEach(event => fullLogs.push({
+        id: `${jobId}-${event.seq}`,
+        timestamp: event.timestamp,
+        level: event.level,
+        logger: event.logger,
+        message: event.message,
+        receivedAt: new Date(event.timestamp).toLocaleString()
+      }));
+    } while (page.events.length > 0 && fullLogs.length < page.total);
+    setLogs(fullLogs);
+  }, [jobId, fetchJobLogs]);
+
   // Get schema for any object type (unified schema fetching)
   const getSchema = useCallback(async (schemaType) => {
     setIsLoading(true);
@@ -341,28 +466,90 @@ export const useServerAPI = () => {
   }, [getAllSchemas]);
 
   // Send problem statement to server for solving
-  const solveProblemStatement = useCallback(async (problemStatementData, configData = null) => {
+  const solveProblemStatement = useCallback(async (problemStatementData, configData = null, gridSize = null) => {
     setIsLoading(true);
     setLoadingMessage('Solving problem statement...');
     setLogs([]); // Clear previous logs
     setIsStreaming(false);
+    setPartialSolution(null);
     logCounterRef.current = 0; // Reset log counter
     
     try {
       await connect();
       
-      // Prepare request data
-      const requestData = { 
-        problemStatement: problemStatementData 
+      const sessionId = sessionIdRef.current;
+      const hasConfig = configData && Object.keys(configData).length > 0;
+      // Ask for the result as a diff against the solution we already hold (column-encoded when sent in full),
+      // for partial solutions while it runs if chosen, and let the server check coordinates against the grid before queueing
+      const solveOptions = {
+        solutionDelta: true,
+        partialSolutions,
+        warmStart: warmStart && lastSolutionRef.current != null,
+        resultEncoding: COLUMNAR_ENCODING,
+        baseResultVersion: lastSolutionRef.current?.version ?? null,
+        ...(gridSize ? { gridSize } : {})
       };
-      
-      // Include config if provided
-      if (configData && Object.keys(configData).length > 0) {
-        requestData.config = configData;
-        console.log('Sending problem statement with config:', configData);
+      let response = null;
+
+      // Send only the edits when the server still holds our previous statement
+      const base = lastUploadRef.current;
+      if (base) {
+        const patch = createJsonPatch(base.statement, problemStatementData);
+        const worthPatching = JSON.stringify(patch).length < JSON.stringify(problemStatementData).length / 2;
+        if (worthPatching) {
+          let updated = false;
+          try {
+            await sendRequest('UPDATE_PROBLEM_STATEMENT', {
+              sessionId,
+              baseVersion: base.version,
+              version: base.version + 1,
+              patch
+            });
+            lastUploadRef.current = { statement: problemStatementData, version: base.version + 1 };
+            updated = true;
+          } catch (error) {
+            console.warn('Patch upload failed, sending the full problem statement:', error);
+            lastUploadRef.current = null;
+          }
+
+          if (updated) {
+            console.log(`Sent problem statement patch with ${patch.length} operations`);
+            response = await sendRequest('SOLVE_CURRENT', {
+              sessionId,
+              config: hasConfig ? configData : {},
+              ...solveOptions
+            });
+          }
+        }
       }
-      
-      const response = await sendRequest('SOLVE_PROBLEM_STATEMENT', requestData);
+
+      if (!response) {
+        const version = (base?.version ?? 0) + 1;
+
+        // Prepare request data
+        const requestData = { 
+          problemStatement: problemStatementData,
+          sessionId,
+          version,
+          ...solveOptions
+        };
+        
+        // Include config if provided
+        if (hasConfig) {
+          requestData.config = configData;
+          console.log('Sending problem statement with config:', configData);
+        }
+        
+        lastUploadRef.current = { statement: problemStatementData, version };
+        try {
+          response = await sendRequest('SOLVE_PROBLEM_STATEMENT', requestData);
+        } catch (error) {
+          // A rejected statement is not stored on the server, so it cannot be the base of the next patch
+          lastUploadRef.current = null;
+          throw error;
+        }
+      }
+
       setIsLoading(false);
       setLoadingMessage('');
       setIsStreaming(false); // Problem solving completed
@@ -374,8 +561,35 @@ export const useServerAPI = () => {
       console.error('Failed to solve problem statement:', error);
       throw error;
     }
+  }, [connect, sendRequest, warmStart, partialSolutions]);
+
+  // Watch a solve submitted by another session; resolves with its solution like a solve of our own
+  const watchJob = useCallback(async (id) => {
+    setIsLoading(true);
+    setLoadingMessage(`Watching job ${id}...`);
+    setLogs([]);
+    setJobId(id);
+    setPartialSolution(null);
+    watchedJobsRef.current.add(id);
+    logCounterRef.current = 0;
+
+    try {
+      await connect();
+      setIsStreaming(true);
+      const response = await sendRequest('SUBSCRIBE_JOB', { jobId: id });
+      return response.solution;
+    } finally {
+      setIsLoading(false);
+      setLoadingMessage('');
+      setIsStreaming(false);
+    }
   }, [connect, sendRequest]);
 
+  // Stop a solve: a queued one is dropped, a running one finishes with its best solution so far
+  const cancelJob = useCallback(async (id) => {
+    await sendRequest('CANCEL_JOB', { jobId: id });
+  }, [sendRequest]);
+
   // Clear logs
   const clearLogs = useCallback(() => {
     setLogs([]);
@@ -395,6 +609,17 @@ export const useServerAPI = () => {
     getProblemStatementTemplate,
     getAllSchemas,
     solveProblemStatement,
+    fetchTiles,
+    fetchJobLogs,
+    watchJob,
+    cancelJob,
+    loadFullLogs,
+    jobId,
+    partialSolution,
+    warmStart,
+    setWarmStart,
+    partialSolutions,
+    setPartialSolutions,
     logs,
     isStreaming,
     clearLogs
@@ -475,3 +700,17 @@ const getDefaultSchemas = async () => ({
   assignment: await getDefaultAssignmentTemplate(),
   problemStatement: await getDefaultProblemStatementTemplate()
 });
+
+// Builds a REST API URL with the same host/port rules as the schema requests
+const buildRestUrl = (path) => {
+  const REST_API_CONFIG = getRestConfig();
+  const configHost = REST_API_CONFIG.DEFAULT_HOST || process.env.REACT_APP_REST_HOST;
+  const configPort = REST_API_CONFIG.DEFAULT_PORT || process.env.REACT_APP_REST_PORT;
+  const configProtocol = REST_API_CONFIG.DEFAULT_PROTOCOL || process.env.REACT_APP_REST_PROTOCOL;
+
+  if (!configHost && REST_API_CONFIG.USE_RELATIVE_URL) {
+    return path;
+  }
+  const protocol = configProtocol || (window.location.protocol === 'https:' ? 'https' : 'http');
+  return `${protocol}://${configHost}:${configPort}${path}`;
+};
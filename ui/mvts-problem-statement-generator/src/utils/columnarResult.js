@@ -0,0 +1,139 @@
+// src/utils/columnarResult.js
+// Decodes results sent with resultEncoding 'columnar-v1' back into the usual assignment list
+
+export const COLUMNAR_ENCODING = 'columnar-v1';
+
+const pad = (value, length) => String(value).padStart(length, '0');
+
+// Decodes in place: the column came from JSON.parse and is not used again
+const decodeInts = (column) => {
+  const values = column.v;
+  if (column.t === 'delta') {
+    for (let i = 1; i < values.length; i++) {
+      values[i] += values[i - 1];
+    }
+  }
+  return values;
+};
+
+const DAY_MS = 86400000;
+const TWO_DIGITS = Array.from({ length: 60 }, (_, i) => pad(i, 2));
+
+const offsetMinutesOf = (offset) => {
+  if (offset === 'Z') {
+    return 0;
+  }
+  const sign = offset[0] === '-' ? -1 : 1;
+  const [hours, minutes] = offset.slice(1).split(':').map(Number);
+  return sign * (hours * 60 + (minutes || 0));
+};
+
+// Prints epoch millis the way the server received them: yyyy-MM-ddTHH:mm:ss.SSS plus the offset.
+// Timestamps of a result mostly fall on a few days, so the date part is cached per day.
+const createTimeFormatter = () => {
+  let cachedDay = null;
+  let cachedDate = '';
+  return (millis, offset, offsetMinutes) => {
+    const local = millis + offsetMinutes * 60000;
+    const day = Math.floor(local / DAY_MS);
+    if (day !== cachedDay) {
+      const date = new Date(day * DAY_MS);
+      cachedDay = day;
+      cachedDate = `${pad(date.getUTCFullYear(), 4)}-${TWO_DIGITS[date.getUTCMonth() + 1]}-${TWO_DIGITS[date.getUTCDate()]}T`;
+    }
+    let rest = local - day * DAY_MS;
+    const hours = Math.floor(rest / 3600000);
+    rest -= hours * 3600000;
+    const minutes = Math.floor(rest / 60000);
+    rest -= minutes * 60000;
+    const seconds = Math.floor(rest / 1000);
+    const ms = rest - seconds * 1000;
+    return `${cachedDate}${TWO_DIGITS[hours]}:${TWO_DIGITS[minutes]}:${TWO_DIGITS[seconds]}.${pad(ms, 3)}${offset}`;
+  };
+};
+
+const decodeColumn = (column) => {
+  switch (column.t) {
+    case 'null':
+      return new Array(column.n).fill(null);
+    case 'nullable': {
+      const present = decodeColumn(column.values);
+      let next = 0;
+      return Array.from(column.nulls, bit => (bit === '1' ? null : present[next++]));
+    }
+    case 'bool':
+      return Array.from(column.v, bit => bit === '1');
+    case 'int':
+    case 'delta':
+      return decodeInts(column);
+    case 'dict':
+      return decodeInts(column.v).map(index => column.d[index]);
+    case 'time': {
+      const millis = decodeInts(column.v);
+      const offsetIndices = column.oi ? decodeInts(column.oi) : null;
+      const offsetMinutes = column.o.map(offsetMinutesOf);
+      const format = createTimeFormatter();
+      return millis.map((value, i) => {
+        const o = offsetIndices ? offsetIndices[i] : 0;
+        return format(value, column.o[o], offsetMinutes[o]);
+      });
+    }
+    case 'obj':
+      return decodeTable(column.table);
+    case 'list': {
+      const items = decodeColumn(column.items);
+      let next = 0;
+      return decodeInts(column.len).map(length => {
+        const list = items.slice(next, next + length);
+        next += length;
+        return list;
+      });
+    }
+    case 'str':
+    case 'raw':
+      return column.v;
+    default:
+      throw new Error(`Unknown column type ${column.t}`);
+  }
+};
+
+const decodeTable = (table) => {
+  const columns = table.columns.map(decodeColumn);
+  const next = new Array(columns.length).fill(0);
+  const rowLayouts = table.layout ? decodeInts(table.layout) : null;
+  // Resolve each layout's names and columns once instead of per row
+  const layoutKeys = table.layouts.map(layout => layout.map(k => table.keys[k]));
+  const layoutColumns = table.layouts.map(layout => layout.map(k => columns[k]));
+  // Rows are cloned from a template with the final shape, so they are allocated at full size
+  const layoutTemplates = layoutKeys.map(keys => Object.fromEntries(keys.map(key => [key, null])));
+
+  const rows = new Array(table.count);
+  for (let i = 0; i < table.count; i++) {
+    const l = rowLayouts ? rowLayouts[i] : 0;
+    const layout = table.layouts[l];
+    const keys = layoutKeys[l];
+    const cols = layoutColumns[l];
+    const row = { ...layoutTemplates[l] };
+    for (let j = 0; j < layout.length; j++) {
+      const k = layout[j];
+      row[keys[j]] = cols[j][next[k]++];
+    }
+    rows[i] = row;
+  }
+  return rows;
+};
+
+// Returns the solution with its assignment list decoded, or the solution itself if it is not encoded
+export const decodeColumnarResult = (solution) => {
+  const assignments = solution?.schedule?.assignments;
+  if (!assignments || assignments.encoding !== COLUMNAR_ENCODING) {
+    return solution;
+  }
+  return {
+    ...solution,
+    schedule: {
+      ...solution.schedule,
+      assignments: decodeTable(assignments.table)
+    }
+  };
+};
@@ -0,0 +1,64 @@
+// src/utils/jsonPatch.js
+// Computes RFC 6902 JSON Patch operations between two JSON values
+
+const isPlainObject = (value) =>
+  value !== null && typeof value === 'object' && !Array.isArray(value);
+
+const escapePointerToken = (token) =>
+  String(token).replace(/~/g, '~0').replace(/\//g, '~1');
+
+// Keys whose value is undefined are dropped by JSON.stringify, so treat them as absent
+const hasJsonKey = (obj, key) =>
+  Object.prototype.hasOwnProperty.call(obj, key) && obj[key] !== undefined;
+
+const diffInto = (before, after, path, operations) => {
+  if (before === after) {
+    return;
+  }
+
+  if (isPlainObject(before) && isPlainObject(after)) {
+    Object.keys(before).forEach((key) => {
+      if (hasJsonKey(before, key) && !hasJsonKey(after, key)) {
+        operations.push({ op: 'remove', path: `${path}/${escapePointerToken(key)}` });
+      }
+    });
+    Object.keys(after).forEach((key) => {
+      if (!hasJsonKey(after, key)) {
+        return;
+      }
+      const childPath = `${path}/${escapePointerToken(key)}`;
+      if (hasJsonKey(before, key)) {
+        diffInto(before[key], after[key], childPath, operations);
+      } else {
+        operations.push({ op: 'add', path: childPath, value: after[key] });
+      }
+    });
+    return;
+  }
+
+  if (Array.isArray(before) && Array.isArray(after)) {
+    const common = Math.min(before.length, after.length);
+    for (let i = 0; i < common; i++) {
+      diffInto(before[i], after[i], `${path}/${i}`, operations);
+    }
+    // Remove from the end so earlier indexes stay valid
+    for (let i = before.length - 1; i >= after.length; i--) {
+      operations.push({ op: 'remove', path: `${path}/${i}` });
+    }
+    for (let i = before.length; i < after.length; i++) {
+      operations.push({ op: 'add', path: `${path}/-`, value: after[i] });
+    }
+    return;
+  }
+
+  if (JSON.stringify(before) !== JSON.stringify(after)) {
+    operations.push({ op: 'replace', path, value: after });
+  }
+};
+
+// Returns the list of patch operations that turn `before` into `after`
+export const createJsonPatch = (before, after) => {
+  const operations = [];
+  diffInto(before, after, '', operations);
+  return operations;
+};
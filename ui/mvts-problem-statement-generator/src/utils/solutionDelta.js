@@ -0,0 +1,24 @@
+// src/utils/solutionDelta.js
+// Rebuilds a solution from the server's keyed assignment diff
+
+// Unchanged assignments keep their object identity so memoized rows skip re-rendering
+export const applySolutionDelta = (previousSolution, delta) => {
+  const previousAssignments = previousSolution?.schedule?.assignments || [];
+  const assignmentsByKey = new Map(previousAssignments.map(assignment => [assignment.task_key, assignment]));
+
+  delta.removed.forEach(taskKey => assignmentsByKey.delete(taskKey));
+  delta.changed.forEach(assignment => assignmentsByKey.set(assignment.task_key, assignment));
+  delta.added.forEach(assignment => assignmentsByKey.set(assignment.task_key, assignment));
+
+  const assignments = delta.order
+    ? delta.order.map(taskKey => assignmentsByKey.get(taskKey))
+    : Array.from(assignmentsByKey.values());
+
+  return {
+    ...delta.envelope,
+    schedule: {
+      ...(delta.envelope.schedule || {}),
+      assignments
+    }
+  };
+};